@@ -0,0 +1,276 @@
+package works.hacker.benchmark;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepositoryImpl;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shared setup of the JMH benchmarks: the Spring context and the trees to benchmark against.
+ */
+@SuppressWarnings("rawtypes")
+public final class BenchmarkTrees {
+  /**
+   * The number of children of the inner nodes of the {@code balanced} shape.
+   */
+  public static final int BALANCED_FAN_OUT = 4;
+
+  /**
+   * The largest denominator of a dyadic fraction, which the {@code double} columns {@code lft} and
+   * {@code rgt} still represent exactly.
+   */
+  public static final long MAX_EXACT_DENOMINATOR = 1L << 53;
+
+  private static final int FLUSH_SIZE = 1000;
+
+  private BenchmarkTrees() {
+  }
+
+  /**
+   * Starts the {@link TreesJpaConfig} context on the embedded H2 database, without SQL logging.
+   *
+   * @return the started context; to be closed in the benchmark tear down
+   */
+  public static AnnotationConfigApplicationContext startContext() {
+    System.setProperty("spring.jpa.show-sql", "false");
+    System.setProperty("spring.jpa.properties.hibernate.format_sql", "false");
+    return new AnnotationConfigApplicationContext(TreesJpaConfig.class);
+  }
+
+  /**
+   * Grows a balanced tree in a single transaction.
+   *
+   * @param context  the started context
+   * @param repo     the tree repository; the entity class must be set
+   * @param fanOut   the number of children of each inner node
+   * @param maxDepth the depth of the leaves
+   * @return the nodes of the tree, in the order they were added; the root first
+   */
+  public static <T extends TreeEntity> List<T> growBalancedTree(
+      AnnotationConfigApplicationContext context, TreeRepository<T> repo, int fanOut, int maxDepth) {
+    TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    return tx.execute(status -> {
+      try {
+        List<T> nodes = new ArrayList<>();
+        T root = repo.createNode("root");
+        repo.startTree(root);
+        nodes.add(root);
+        addChildren(repo, root, fanOut, maxDepth, nodes);
+        return nodes;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  private static <T extends TreeEntity> void addChildren(
+      TreeRepository<T> repo, T parent, int fanOut, int maxDepth, List<T> nodes) throws Exception {
+    if (parent.getDepth() >= maxDepth) {
+      return;
+    }
+    for (int i = 0; i < fanOut; i++) {
+      T child = repo.createNode(String.format("%s.%d", parent.getName(), i));
+      repo.addChild(parent, child);
+      nodes.add(child);
+      addChildren(repo, child, fanOut, maxDepth, nodes);
+    }
+  }
+
+  /**
+   * Returns the parent of each node of a tree shape - the nodes numbered in the order they are added,
+   * thus each parent precedes its children:
+   * <ul>
+   * <li>{@code chain} - each node the only child of the previous one</li>
+   * <li>{@code wide} - all the nodes children of the root</li>
+   * <li>{@code balanced} - {@link #BALANCED_FAN_OUT} children per inner node, level by level</li>
+   * <li>{@code random} - each node the child of a random node added before it; the same tree every run</li>
+   * </ul>
+   *
+   * @param shape the name of the shape
+   * @param size  the number of nodes, the root included
+   * @return the index of the parent of each node; -1 for the root
+   */
+  public static int[] parents(String shape, int size) {
+    int[] parents = new int[size];
+    parents[0] = -1;
+    Random random = new Random(42);
+    for (int i = 1; i < size; i++) {
+      switch (shape) {
+        case "chain":
+          parents[i] = i - 1;
+          break;
+        case "wide":
+          parents[i] = 0;
+          break;
+        case "balanced":
+          parents[i] = (i - 1) / BALANCED_FAN_OUT;
+          break;
+        case "random":
+          parents[i] = random.nextInt(i);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Unknown tree shape: %s", shape));
+      }
+    }
+    return parents;
+  }
+
+  /**
+   * Bulk-loads a classic tree of the given shape in a single transaction - the {@code lft} and
+   * {@code rgt} are numbered up front, as if the nodes were added one {@code addChild} at a time,
+   * without renumbering the tree on each insert.
+   *
+   * @param context the started context
+   * @param repo    the tree repository; the entity class must be set
+   * @param parents the shape of the tree - see {@link #parents}
+   * @return the ids of the nodes, in the order of the shape
+   */
+  public static long[] loadClassicTree(
+      AnnotationConfigApplicationContext context, MpttNodeRepository repo, int[] parents) {
+    int n = parents.length;
+    long[] sizes = new long[n];
+    Arrays.fill(sizes, 1L);
+    for (int i = n - 1; i > 0; i--) {
+      sizes[parents[i]] += sizes[i];
+    }
+    long[] depths = new long[n];
+    long[] lfts = new long[n];
+    // the lft of the next child of each node
+    long[] nextLfts = new long[n];
+    long[] ids = new long[n];
+
+    TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    tx.execute(status -> {
+      EntityManager entityManager = transactionalEntityManager(context);
+      MpttNode root = new MpttNode("root");
+      long treeId = startTree(repo, root);
+      root.setRgt(root.getLft() + 2 * sizes[0] - 1);
+      lfts[0] = root.getLft();
+      nextLfts[0] = lfts[0] + 1;
+      ids[0] = root.getId();
+
+      for (int i = 1; i < n; i++) {
+        int parent = parents[i];
+        depths[i] = depths[parent] + 1;
+        lfts[i] = nextLfts[parent];
+        nextLfts[parent] += 2 * sizes[i];
+        nextLfts[i] = lfts[i] + 1;
+
+        MpttNode node = new MpttNode(String.format("node-%d", i));
+        node.setTreeId(treeId);
+        node.setDepth(depths[i]);
+        node.setLft(lfts[i]);
+        node.setRgt(lfts[i] + 2 * sizes[i] - 1);
+        entityManager.persist(node);
+        ids[i] = node.getId();
+        flushPeriodically(entityManager, i);
+      }
+      return null;
+    });
+    return ids;
+  }
+
+  /**
+   * Bulk-loads a dyadic tree of the given shape in a single transaction - each node is encoded by the
+   * very arithmetic of the {@link DyadicNodeRepositoryImpl}, as if added one {@code addChild} at a time.
+   *
+   * @param context the started context
+   * @param repo    the tree repository; the entity class must be set
+   * @param parents the shape of the tree - see {@link #parents}
+   * @return the ids of the nodes, in the order of the shape
+   * @throws IllegalStateException if the shape is too deep or too wide for the dyadic encoding - the
+   *                               denominators would exceed {@link #MAX_EXACT_DENOMINATOR}
+   */
+  public static long[] loadDyadicTree(
+      AnnotationConfigApplicationContext context, DyadicNodeRepository repo, int[] parents) {
+    int n = parents.length;
+    DyadicNode[] nodes = new DyadicNode[n];
+    int[] youngestChildren = new int[n];
+    Arrays.fill(youngestChildren, -1);
+    long[] ids = new long[n];
+    DyadicEncoder encoder = new DyadicEncoder();
+
+    TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    tx.execute(status -> {
+      EntityManager entityManager = transactionalEntityManager(context);
+      nodes[0] = new DyadicNode("root");
+      startTree(repo, nodes[0]);
+      ids[0] = nodes[0].getId();
+
+      for (int i = 1; i < n; i++) {
+        int parent = parents[i];
+        DyadicNode node = new DyadicNode(String.format("node-%d", i));
+        if (youngestChildren[parent] < 0) {
+          encoder.addFirstChild(nodes[parent], node);
+        } else {
+          encoder.addNextChild(nodes[youngestChildren[parent]], node);
+        }
+        youngestChildren[parent] = i;
+        if (node.getRgtD() <= 0 || node.getRgtD() > MAX_EXACT_DENOMINATOR) {
+          throw new IllegalStateException(String.format(
+              "Tree too deep or too wide for the dyadic encoding - node %d at depth %d", i, node.getDepth()));
+        }
+        nodes[i] = node;
+        entityManager.persist(node);
+        ids[i] = node.getId();
+        flushPeriodically(entityManager, i);
+      }
+      return null;
+    });
+    return ids;
+  }
+
+  /**
+   * @param context the started context
+   * @return the entity manager of the current transaction
+   */
+  public static EntityManager transactionalEntityManager(AnnotationConfigApplicationContext context) {
+    EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+    return EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+  }
+
+  private static <T extends TreeEntity> long startTree(TreeRepository<T> repo, T root) {
+    try {
+      return repo.startTree(root);
+    } catch (TreeRepository.NodeAlreadyAttachedToTree e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void flushPeriodically(EntityManager entityManager, int i) {
+    if (i % FLUSH_SIZE == 0) {
+      entityManager.flush();
+      entityManager.clear();
+    }
+  }
+
+  /**
+   * Exposes the child encoding of the dyadic repository - no database access involved.
+   */
+  private static final class DyadicEncoder extends DyadicNodeRepositoryImpl {
+    @Override
+    protected void addFirstChild(DyadicNode parent, DyadicNode child) {
+      super.addFirstChild(parent, child);
+    }
+
+    @Override
+    protected void addNextChild(DyadicNode sibling, DyadicNode child) {
+      super.addNextChild(sibling, child);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package works.hacker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the insert throughput of both encodings, with and without JDBC batching - a batch size of 1
+ * sends every statement on its own. The ids are generated by an identity column, thus the inserts
+ * themselves are never batched; the batch size applies to the updates of the renumbered nodes.
+ * <ul>
+ * <li>{@code ensurePath} inserts a path of 100 nodes into a new tree - the bulk insert path</li>
+ * <li>{@code growTree} grows a balanced tree of 1 + 5 + 25 + 125 nodes one {@code addChild} at a
+ * time - the renumbering path</li>
+ * </ul>
+ * <pre>
+ * mvn -pl mptt-benchmarks -am package -DskipTests
+ * java -jar mptt-benchmarks/target/benchmarks.jar InsertBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InsertBenchmark {
+  private static final int PATH_LENGTH = 100;
+
+  @Param({"1", "50"})
+  public int batchSize;
+
+  private AnnotationConfigApplicationContext context;
+  private TransactionTemplate tx;
+  private MpttNodeRepository classicRepo;
+  private DyadicNodeRepository dyadicRepo;
+  private List<String> path;
+
+  @Setup
+  public void setUp() {
+    System.setProperty("spring.jpa.properties.hibernate.jdbc.batch_size", String.valueOf(batchSize));
+    context = BenchmarkTrees.startContext();
+    tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    classicRepo = context.getBean(MpttNodeRepository.class);
+    classicRepo.setEntityClass(MpttNode.class);
+    dyadicRepo = context.getBean(DyadicNodeRepository.class);
+    dyadicRepo.setEntityClass(DyadicNode.class);
+
+    path = new ArrayList<>();
+    path.add("root");
+    for (int i = 0; i < PATH_LENGTH; i++) {
+      path.add(String.format("node-%d", i));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+    System.clearProperty("spring.jpa.properties.hibernate.jdbc.batch_size");
+  }
+
+  @Benchmark
+  public MpttNode classicEnsurePath() {
+    return ensurePath(classicRepo);
+  }
+
+  @Benchmark
+  public DyadicNode dyadicEnsurePath() {
+    return ensurePath(dyadicRepo);
+  }
+
+  @Benchmark
+  public List<MpttNode> classicGrowTree() {
+    return BenchmarkTrees.growBalancedTree(context, classicRepo, 5, 3);
+  }
+
+  @Benchmark
+  public List<DyadicNode> dyadicGrowTree() {
+    return BenchmarkTrees.growBalancedTree(context, dyadicRepo, 5, 3);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private <T extends TreeEntity> T ensurePath(TreeRepository<T> repo) {
+    return tx.execute(status -> {
+      try {
+        T root = repo.createNode("root");
+        Long treeId = repo.startTree(root);
+        return repo.ensurePath(treeId, path);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(InsertBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+}
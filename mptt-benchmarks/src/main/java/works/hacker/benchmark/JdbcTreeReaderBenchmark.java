@@ -0,0 +1,121 @@
+package works.hacker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.JdbcTreeReader;
+import works.hacker.mptt.TreeRow;
+import works.hacker.mptt.TreeTableMapping;
+import works.hacker.mptt.classic.MpttJdbcTreeReader;
+import works.hacker.repo.classic.MpttNodeRepository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the read operations of the JPA {@link MpttNodeRepository} with the {@link JdbcTreeReader}
+ * fast path on a balanced tree of 1 + 10 + 100 + 1000 nodes.
+ * <pre>
+ * mvn -pl mptt-benchmarks -am package -DskipTests
+ * java -jar mptt-benchmarks/target/benchmarks.jar JdbcTreeReaderBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JdbcTreeReaderBenchmark {
+  private AnnotationConfigApplicationContext context;
+  private MpttNodeRepository repo;
+  private JdbcTreeReader reader;
+
+  private MpttNode inner;
+  private MpttNode leaf;
+  private TreeRow innerRow;
+  private TreeRow leafRow;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkTrees.startContext();
+    repo = context.getBean(MpttNodeRepository.class);
+    repo.setEntityClass(MpttNode.class);
+    List<MpttNode> nodes = BenchmarkTrees.growBalancedTree(context, repo, 10, 3);
+    reader = new MpttJdbcTreeReader(context.getBean(DataSource.class), TreeTableMapping.of(MpttNode.class));
+
+    inner = repo.findById(nodes.get(1).getId()).get();
+    leaf = repo.findById(nodes.get(nodes.size() - 1).getId()).get();
+    innerRow = TreeRow.of(inner);
+    leafRow = TreeRow.of(leaf);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<MpttNode> jpaFindChildren() {
+    return repo.findChildren(inner);
+  }
+
+  @Benchmark
+  public List<TreeRow> jdbcFindChildren() {
+    return reader.findChildren(innerRow);
+  }
+
+  @Benchmark
+  public List<MpttNode> jpaFindSubTree() {
+    return repo.findSubTree(inner);
+  }
+
+  @Benchmark
+  public List<TreeRow> jdbcFindSubTree() {
+    return reader.findSubTree(innerRow);
+  }
+
+  @Benchmark
+  public List<MpttNode> jpaFindAncestors() {
+    return repo.findAncestors(leaf);
+  }
+
+  @Benchmark
+  public List<TreeRow> jdbcFindAncestors() {
+    return reader.findAncestors(leafRow);
+  }
+
+  @Benchmark
+  public Optional<MpttNode> jpaFindParent() {
+    return repo.findParent(leaf);
+  }
+
+  @Benchmark
+  public Optional<TreeRow> jdbcFindParent() {
+    return reader.findParent(leafRow);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(JdbcTreeReaderBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
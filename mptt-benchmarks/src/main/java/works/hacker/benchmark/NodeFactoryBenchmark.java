@@ -0,0 +1,70 @@
+package works.hacker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.NodeFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of creating a single node: the reflective constructor lookup {@code createNode} used to do
+ * on every call, the {@link NodeFactory} resolved once, the {@link NodeFactory} looked up by
+ * {@link NodeFactory#of} on every call, and a plain {@code new} as the baseline. No database is involved.
+ * <pre>
+ * mvn -pl mptt-benchmarks -am package -DskipTests
+ * java -jar mptt-benchmarks/target/benchmarks.jar NodeFactoryBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NodeFactoryBenchmark {
+  private final NodeFactory<MpttNode> factory = NodeFactory.of(MpttNode.class);
+  private final String name = "node";
+
+  @Benchmark
+  public MpttNode reflectiveLookup()
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
+      InstantiationException {
+    return MpttNode.class.getDeclaredConstructor(String.class).newInstance(name);
+  }
+
+  @Benchmark
+  public MpttNode nodeFactory() throws NoSuchMethodException, InvocationTargetException {
+    return factory.create(name);
+  }
+
+  @Benchmark
+  public MpttNode nodeFactoryLookup() throws NoSuchMethodException, InvocationTargetException {
+    return NodeFactory.of(MpttNode.class).create(name);
+  }
+
+  @Benchmark
+  public MpttNode constructor() {
+    return new MpttNode(name);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(NodeFactoryBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
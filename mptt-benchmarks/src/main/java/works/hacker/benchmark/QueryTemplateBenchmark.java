@@ -0,0 +1,130 @@
+package works.hacker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.classic.MpttQueries;
+import works.hacker.repo.classic.MpttNodeRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares formatting the JPQL of the hot {@code findChildren} / {@code findParent} paths on every call
+ * (as the repositories used to do) with the queries prepared once by {@link MpttQueries} - both from the
+ * same templates, {@link MpttQueries#FIND_CHILDREN} and {@link MpttQueries#FIND_PARENT}.
+ * <p>
+ * The {@code *QueryString} benchmarks isolate the cost of building the query string; the others run
+ * the whole query against the embedded H2 database. Run with the GC profiler to see the allocation
+ * per operation:
+ * <pre>
+ * mvn -pl mptt-benchmarks -am package -DskipTests
+ * java -jar mptt-benchmarks/target/benchmarks.jar QueryTemplateBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryTemplateBenchmark {
+  private AnnotationConfigApplicationContext context;
+  private EntityManager entityManager;
+  private MpttQueries queries;
+  private MpttNode node;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkTrees.startContext();
+    MpttNodeRepository repo = context.getBean(MpttNodeRepository.class);
+    repo.setEntityClass(MpttNode.class);
+    List<MpttNode> nodes = BenchmarkTrees.growBalancedTree(context, repo, 10, 2);
+
+    entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+    node = entityManager.find(MpttNode.class, nodes.get(1).getId());
+    queries = MpttQueries.of(MpttNode.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    entityManager.close();
+    context.close();
+  }
+
+  @Benchmark
+  public String formattedFindChildrenQueryString() {
+    return String.format(MpttQueries.FIND_CHILDREN, MpttNode.class.getSimpleName());
+  }
+
+  @Benchmark
+  public String cachedFindChildrenQueryString() {
+    return queries.findChildren;
+  }
+
+  @Benchmark
+  public List<MpttNode> formattedFindChildren() {
+    return entityManager.createQuery(
+        String.format(MpttQueries.FIND_CHILDREN, MpttNode.class.getSimpleName()), MpttNode.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("depth", node.getDepth() + 1)
+        .getResultList();
+  }
+
+  @Benchmark
+  public List<MpttNode> cachedFindChildren() {
+    return entityManager.createQuery(queries.findChildren, MpttNode.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("depth", node.getDepth() + 1)
+        .getResultList();
+  }
+
+  @Benchmark
+  public List<MpttNode> formattedFindParent() {
+    return entityManager.createQuery(
+        String.format(MpttQueries.FIND_PARENT, MpttNode.class.getSimpleName()), MpttNode.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setMaxResults(1)
+        .getResultList();
+  }
+
+  @Benchmark
+  public List<MpttNode> cachedFindParent() {
+    return entityManager.createQuery(queries.findParent, MpttNode.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setMaxResults(1)
+        .getResultList();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(QueryTemplateBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
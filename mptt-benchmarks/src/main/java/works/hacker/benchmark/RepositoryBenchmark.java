@@ -0,0 +1,181 @@
+package works.hacker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code MpttRepositoryImpl} and the {@code DyadicRepositoryImpl} - the reads and the
+ * mutations of the {@link TreeRepository} - across the tree shapes of {@link BenchmarkTrees#parents}
+ * and sizes of 1k to 1M nodes, on the embedded H2 database.
+ * <p>
+ * Reports the throughput and the sampled latency - with its percentiles - of each operation; the GC
+ * profiler adds the allocation per operation - {@code gc.alloc.rate.norm}.
+ * <ul>
+ * <li>{@code findChildren}, {@code addChild} and {@code removeChild} - on the parent of the last
+ * node</li>
+ * <li>{@code findSubTree} - of the first child of the root</li>
+ * <li>{@code findAncestors} and {@code findParent} - of the last node, the deepest of a chain</li>
+ * </ul>
+ * The mutations are flushed and then rolled back, thus each invocation runs against the same tree; the
+ * rollback is part of the measured time.
+ * <p>
+ * The trees are bulk-loaded per trial, and the second-level and query caches are disabled, thus the
+ * reads hit the database. The dyadic encoding doubles a denominator per sibling and per level - the
+ * {@code chain} and {@code wide} trees beyond ~50 nodes - i.e. at every benchmarked size - do not fit
+ * into it, thus those trials fail in their setup, reporting as much.
+ * <p>
+ * The full matrix runs for hours - select a part of it with {@code -p}:
+ * <pre>
+ * mvn -pl mptt-benchmarks -am package -DskipTests
+ * java -jar mptt-benchmarks/target/benchmarks.jar RepositoryBenchmark -prof gc \
+ *     -p shape=balanced,random -p size=1000,100000
+ * </pre>
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryBenchmark {
+  private static final String SECOND_LEVEL_CACHE =
+      "spring.jpa.properties.hibernate.cache.use_second_level_cache";
+  private static final String QUERY_CACHE = "spring.jpa.properties.hibernate.cache.use_query_cache";
+
+  @Param({"classic", "dyadic"})
+  public String encoding;
+
+  @Param({"chain", "wide", "balanced", "random"})
+  public String shape;
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int size;
+
+  private AnnotationConfigApplicationContext context;
+  private TransactionTemplate tx;
+  private TreeRepository repo;
+
+  private TreeEntity subTreeRoot;
+  private TreeEntity parent;
+  private TreeEntity last;
+
+  @Setup
+  public void setUp() {
+    System.setProperty(SECOND_LEVEL_CACHE, "false");
+    System.setProperty(QUERY_CACHE, "false");
+    context = BenchmarkTrees.startContext();
+    tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+    int[] parents = BenchmarkTrees.parents(shape, size);
+    long[] ids;
+    if ("classic".equals(encoding)) {
+      MpttNodeRepository classicRepo = context.getBean(MpttNodeRepository.class);
+      classicRepo.setEntityClass(MpttNode.class);
+      ids = BenchmarkTrees.loadClassicTree(context, classicRepo, parents);
+      repo = classicRepo;
+    } else {
+      DyadicNodeRepository dyadicRepo = context.getBean(DyadicNodeRepository.class);
+      dyadicRepo.setEntityClass(DyadicNode.class);
+      ids = BenchmarkTrees.loadDyadicTree(context, dyadicRepo, parents);
+      repo = dyadicRepo;
+    }
+
+    JpaRepository<TreeEntity, Long> jpaRepo = (JpaRepository<TreeEntity, Long>) repo;
+    subTreeRoot = jpaRepo.findById(ids[1]).get();
+    parent = jpaRepo.findById(ids[parents[size - 1]]).get();
+    last = jpaRepo.findById(ids[size - 1]).get();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+    System.clearProperty(SECOND_LEVEL_CACHE);
+    System.clearProperty(QUERY_CACHE);
+  }
+
+  @Benchmark
+  public TreeEntity addChild() {
+    return tx.execute(status -> {
+      status.setRollbackOnly();
+      try {
+        TreeEntity child = repo.createNode("added");
+        repo.addChild(parent, child);
+        BenchmarkTrees.transactionalEntityManager(context).flush();
+        return child;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  @Benchmark
+  public List removeChild() {
+    return tx.execute(status -> {
+      status.setRollbackOnly();
+      try {
+        List removed = repo.removeChild(parent, last);
+        BenchmarkTrees.transactionalEntityManager(context).flush();
+        return removed;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  @Benchmark
+  public List findChildren() {
+    return repo.findChildren(parent);
+  }
+
+  @Benchmark
+  public List findSubTree() {
+    return repo.findSubTree(subTreeRoot);
+  }
+
+  @Benchmark
+  public List findAncestors() {
+    return repo.findAncestors(last);
+  }
+
+  @Benchmark
+  public Optional findParent() {
+    return repo.findParent(last);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(RepositoryBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,134 @@
+package works.hacker.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.classic.MpttEntity;
+import works.hacker.mptt.dyadic.DyadicEntity;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collection operations over large sets of nodes - hashing, lookups and sorting in preorder - with the
+ * id based identity and the allocation-free comparators of the tree entities. {@code toStringHashCode}
+ * is the cost of the former {@code hashCode}, formatting the node on every call.
+ * <p>
+ * The nodes are built in memory - a flat tree of {@code size} nodes, with the ids set as if persisted.
+ * <pre>
+ * mvn -pl mptt-benchmarks -am package -DskipTests
+ * java -jar mptt-benchmarks/target/benchmarks.jar TreeEntityBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TreeEntityBenchmark {
+  @Param({"100000"})
+  public int size;
+
+  private List<MpttNode> classicNodes;
+  private List<DyadicNode> dyadicNodes;
+  private Set<MpttNode> classicSet;
+
+  @Setup
+  public void setUp() throws ReflectiveOperationException {
+    Field id = TreeEntity.class.getDeclaredField("id");
+    id.setAccessible(true);
+
+    classicNodes = new ArrayList<>(size);
+    dyadicNodes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      MpttNode classic = new MpttNode(String.format("node-%d", i));
+      id.setLong(classic, i + 1);
+      classic.setTreeId(1L);
+      classic.setLft(2L * i + 2);
+      classic.setRgt(2L * i + 3);
+      classicNodes.add(classic);
+
+      // the children of the root at 0/1 .. 1/1 - the i-th child starts at i/(i + 1), an exact fraction
+      DyadicNode dyadic = new DyadicNode(String.format("node-%d", i));
+      id.setLong(dyadic, i + 1);
+      dyadic.setTreeId(1L);
+      dyadic.setDepth(1L);
+      dyadic.setLftN(i);
+      dyadic.setLftD(i + 1L);
+      dyadicNodes.add(dyadic);
+    }
+    Collections.shuffle(classicNodes, new Random(42));
+    Collections.shuffle(dyadicNodes, new Random(42));
+    classicSet = new HashSet<>(classicNodes);
+  }
+
+  @Benchmark
+  public Set<MpttNode> hashSetAddAll() {
+    return new HashSet<>(classicNodes);
+  }
+
+  @Benchmark
+  public int hashSetContainsAll() {
+    int found = 0;
+    for (MpttNode node : classicNodes) {
+      if (classicSet.contains(node)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  public int toStringHashCode() {
+    int hash = 0;
+    for (MpttNode node : classicNodes) {
+      hash += Objects.hash(node.toString());
+    }
+    return hash;
+  }
+
+  @Benchmark
+  public List<MpttNode> classicSortPreorder() {
+    List<MpttNode> sorted = new ArrayList<>(classicNodes);
+    sorted.sort(MpttEntity.PREORDER);
+    return sorted;
+  }
+
+  @Benchmark
+  public List<DyadicNode> dyadicSortPreorder() {
+    List<DyadicNode> sorted = new ArrayList<>(dyadicNodes);
+    sorted.sort(DyadicEntity.PREORDER);
+    return sorted;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(TreeEntityBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,177 @@
+package works.hacker.mptt;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the ancestor chains of the nodes, in front of
+ * {@link TreeRepository#findAncestors} and {@link TreeRepository#findParent}.
+ * <p>
+ * Only the ids of the ancestors are kept - from the tree root down to the parent of the node - keyed by
+ * the id of the node. The repository resolves the ids of a chain to entities with a single
+ * {@code WHERE id IN (...)} query of the tree - cached in the query cache region of the tree, if enabled:
+ * <pre><code>
+ * tagTreeRepo.setAncestorChainCache(new AncestorChainCache(10_000));
+ * List&lt;TagTree&gt; breadcrumbs = tagTreeRepo.findAncestors(node);
+ * </code></pre>
+ * Adding a node does not change the ancestors of any other node, thus it does not invalidate anything.
+ * Removing a sub-tree invalidates just the chains of the removed nodes. Every chain is also tagged
+ * with the version of its tree at the time it was cached - {@link #invalidateTree} drops all the chains
+ * of a tree at once, e.g. when the tree was changed by another application instance.
+ * <p>
+ * At most {@code maxSize} chains are kept; when exceeded, the least recently used one is evicted. The
+ * hit, miss and eviction counters are exposed for monitoring.
+ */
+public class AncestorChainCache {
+  private final int maxSize;
+  private final Map<Long, Chain> chains;
+  private final Map<Long, Long> treeVersions = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param maxSize the maximum number of ancestor chains to keep
+   */
+  public AncestorChainCache(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException(String.format("maxSize must be positive: %d", maxSize));
+    }
+    this.maxSize = maxSize;
+    this.chains = new LinkedHashMap<Long, Chain>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Chain> eldest) {
+        if (size() > AncestorChainCache.this.maxSize) {
+          evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Looks up the ancestor chain of a node.
+   *
+   * @param node the node to look up the ancestors of
+   * @return the ids of the ancestors from the tree root down to the parent; or null on a miss
+   */
+  @SuppressWarnings("rawtypes")
+  public long[] get(TreeEntity node) {
+    Chain chain;
+    synchronized (chains) {
+      chain = chains.get(node.getId());
+    }
+    if (chain == null || chain.treeId != node.getTreeId() || chain.version != getVersion(chain.treeId)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return chain.ancestorIds.clone();
+  }
+
+  /**
+   * Caches the ancestor chain of a node.
+   *
+   * @param node      the node
+   * @param ancestors the ancestors of the node from the tree root down to the parent
+   * @param version   the version of the tree read before the ancestors were queried - see
+   *                  {@link #getVersion}
+   */
+  @SuppressWarnings("rawtypes")
+  public void put(TreeEntity node, List<? extends TreeEntity> ancestors, long version) {
+    long[] ancestorIds = new long[ancestors.size()];
+    for (int i = 0; i < ancestorIds.length; i++) {
+      ancestorIds[i] = ancestors.get(i).getId();
+    }
+    Chain chain = new Chain(node.getTreeId(), version, ancestorIds);
+    synchronized (chains) {
+      chains.put(node.getId(), chain);
+    }
+  }
+
+  /**
+   * @param treeId the identifier of the tree
+   * @return the current version of the tree; changed by every {@link #invalidateTree}
+   */
+  public long getVersion(long treeId) {
+    return treeVersions.getOrDefault(treeId, 0L);
+  }
+
+  /**
+   * Invalidates the chains of the given nodes - to be called with the nodes of a removed sub-tree.
+   *
+   * @param nodeIds the ids of the removed nodes
+   */
+  public void invalidate(Collection<Long> nodeIds) {
+    synchronized (chains) {
+      nodeIds.forEach(chains::remove);
+    }
+  }
+
+  /**
+   * Invalidates the chains of all the nodes of a tree.
+   *
+   * @param treeId the identifier of the tree
+   */
+  public void invalidateTree(long treeId) {
+    treeVersions.merge(treeId, 1L, Long::sum);
+  }
+
+  /**
+   * Invalidates all the chains.
+   */
+  public void invalidateAll() {
+    synchronized (chains) {
+      chains.clear();
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int size() {
+    synchronized (chains) {
+      return chains.size();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * @return the ratio of the lookups answered from the cache; 0 before the first lookup
+   */
+  public double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  private static final class Chain {
+    private final long treeId;
+    private final long version;
+    private final long[] ancestorIds;
+
+    private Chain(long treeId, long version, long[] ancestorIds) {
+      this.treeId = treeId;
+      this.version = version;
+      this.ancestorIds = ancestorIds;
+    }
+  }
+}
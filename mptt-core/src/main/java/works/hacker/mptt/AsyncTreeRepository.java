@@ -0,0 +1,356 @@
+package works.hacker.mptt;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous facade of a {@link TreeRepository} - each operation runs on an executor and returns a
+ * {@link CompletableFuture}, thus independent lookups overlap instead of running one after another:
+ * <pre><code>
+ * AsyncTreeRepository&lt;TagTree&gt; async = AsyncTreeRepository.create(tagTreeRepo, 8, 100);
+ * CompletableFuture&lt;List&lt;TagTree&gt;&gt; breadcrumbs = async.findAncestors(tag);
+ * CompletableFuture&lt;List&lt;TagTree&gt;&gt; children = async.findChildren(tag);
+ * CompletableFuture.allOf(breadcrumbs, children).join();
+ * </code></pre>
+ * Each operation runs in a transaction of its own - the nodes it returns are detached, and the
+ * mutations are not atomic with each other. Mutate the trees from a single transaction, if they must be.
+ * <p>
+ * {@link #create} runs the operations on virtual threads, where the runtime supports them (Java 21+),
+ * otherwise on a bounded thread pool. Either way at most {@code maxConcurrency} operations run at the
+ * same time - e.g. the size of the connection pool - and at most {@code queueCapacity} more wait;
+ * any further operation is rejected - its future completes with a {@link RejectedExecutionException}.
+ * <p>
+ * The queueing metrics - queued, active, completed, failed and rejected operations - are exposed for
+ * monitoring. They are updated before the future of the operation completes.
+ */
+@SuppressWarnings("rawtypes")
+public class AsyncTreeRepository<T extends TreeEntity> implements AutoCloseable {
+  private static final AtomicInteger THREADS = new AtomicInteger();
+
+  /**
+   * An operation of the repository - may throw the checked exceptions of the repository.
+   */
+  @FunctionalInterface
+  protected interface Call<R> {
+    R call() throws Exception;
+  }
+
+  private final TreeRepository<T> repository;
+  private final Executor executor;
+  private final ExecutorService ownExecutor;
+  private final boolean virtualThreads;
+  private final int maxConcurrency;
+  private final int queueCapacity;
+  private final Semaphore permits;
+  private final Semaphore slots;
+
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * Runs the operations on the given executor, which bounds them on its own.
+   *
+   * @param repository the repository to run the operations of; the entity class must be set
+   * @param executor   the executor to run the operations on
+   */
+  public AsyncTreeRepository(TreeRepository<T> repository, Executor executor) {
+    this(repository, executor, null, false, 0, 0, null, null);
+  }
+
+  private AsyncTreeRepository(TreeRepository<T> repository, Executor executor, ExecutorService ownExecutor,
+      boolean virtualThreads, int maxConcurrency, int queueCapacity, Semaphore permits, Semaphore slots) {
+    this.repository = repository;
+    this.executor = executor;
+    this.ownExecutor = ownExecutor;
+    this.virtualThreads = virtualThreads;
+    this.maxConcurrency = maxConcurrency;
+    this.queueCapacity = queueCapacity;
+    this.permits = permits;
+    this.slots = slots;
+  }
+
+  /**
+   * Runs the operations on virtual threads, if the runtime supports them; otherwise on a bounded pool
+   * of daemon threads.
+   *
+   * @param repository     the repository to run the operations of; the entity class must be set
+   * @param maxConcurrency the maximum number of operations running at the same time
+   * @param queueCapacity  the maximum number of operations waiting to run
+   * @return the facade; to be closed, when no longer used
+   */
+  public static <T extends TreeEntity> AsyncTreeRepository<T> create(
+      TreeRepository<T> repository, int maxConcurrency, int queueCapacity) {
+    if (maxConcurrency < 1 || queueCapacity < 0) {
+      throw new IllegalArgumentException(String.format(
+          "maxConcurrency must be positive, queueCapacity not negative: %d, %d",
+          maxConcurrency, queueCapacity));
+    }
+    ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+    if (virtual != null) {
+      return new AsyncTreeRepository<>(repository, virtual, virtual, true, maxConcurrency, queueCapacity,
+          new Semaphore(maxConcurrency), new Semaphore(maxConcurrency + queueCapacity));
+    }
+    BlockingQueue<Runnable> queue = queueCapacity == 0
+        ? new SynchronousQueue<>()
+        : new ArrayBlockingQueue<>(queueCapacity);
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+        queue, r -> {
+      Thread thread = new Thread(r, String.format("tree-async-%d", THREADS.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    });
+    pool.allowCoreThreadTimeOut(true);
+    return new AsyncTreeRepository<>(repository, pool, pool, false, maxConcurrency, queueCapacity,
+        null, null);
+  }
+
+  /**
+   * @return the virtual thread per task executor of Java 21+; or null on older runtimes
+   */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  public CompletableFuture<Long> startTree(T node) {
+    return submit(() -> repository.startTree(node));
+  }
+
+  public CompletableFuture<T> findTreeRoot(Long treeId) {
+    return submit(() -> repository.findTreeRoot(treeId));
+  }
+
+  public CompletableFuture<List<Long>> findLargestTreeIds(int limit) {
+    return submit(() -> repository.findLargestTreeIds(limit));
+  }
+
+  public CompletableFuture<Optional<T>> findByPath(Long treeId, List<String> names) {
+    return submit(() -> repository.findByPath(treeId, names));
+  }
+
+  public CompletableFuture<T> ensurePath(Long treeId, List<String> names) {
+    return submit(() -> repository.ensurePath(treeId, names));
+  }
+
+  public CompletableFuture<Void> addChild(T parent, T child) {
+    return submit(() -> {
+      repository.addChild(parent, child);
+      return null;
+    });
+  }
+
+  public CompletableFuture<List<T>> removeChild(T parent, T child) {
+    return submit(() -> repository.removeChild(parent, child));
+  }
+
+  public CompletableFuture<List<T>> findChildren(T node) {
+    return submit(() -> repository.findChildren(node));
+  }
+
+  public CompletableFuture<Map<T, List<T>>> findChildrenOfAll(Collection<T> nodes) {
+    return submit(() -> repository.findChildrenOfAll(nodes));
+  }
+
+  public CompletableFuture<List<T>> findSubTree(T node) {
+    return submit(() -> repository.findSubTree(node));
+  }
+
+  public CompletableFuture<List<T>> findSubTree(T node, long maxDepth) {
+    return submit(() -> repository.findSubTree(node, maxDepth));
+  }
+
+  public CompletableFuture<List<T>> findDescendantsAtDepth(T node, long depth) {
+    return submit(() -> repository.findDescendantsAtDepth(node, depth));
+  }
+
+  public CompletableFuture<List<T>> findLeaves(T node) {
+    return submit(() -> repository.findLeaves(node));
+  }
+
+  public CompletableFuture<List<T>> findSiblings(T node) {
+    return submit(() -> repository.findSiblings(node));
+  }
+
+  public CompletableFuture<List<T>> findAncestors(T node) {
+    return submit(() -> repository.findAncestors(node));
+  }
+
+  public CompletableFuture<Map<T, List<T>>> findAncestorsOfAll(Collection<T> nodes) {
+    return submit(() -> repository.findAncestorsOfAll(nodes));
+  }
+
+  public CompletableFuture<Optional<T>> findParent(T node) {
+    return submit(() -> repository.findParent(node));
+  }
+
+  /**
+   * Runs an operation on the executor.
+   *
+   * @param call the operation
+   * @return the future result of the operation; completes exceptionally with the exception thrown by
+   * the operation, or with a {@link RejectedExecutionException} if the queue is full
+   */
+  protected <R> CompletableFuture<R> submit(Call<R> call) {
+    CompletableFuture<R> future = new CompletableFuture<>();
+    if (slots != null && !slots.tryAcquire()) {
+      rejected.incrementAndGet();
+      future.completeExceptionally(new RejectedExecutionException(String.format(
+          "%d operations running and %d queued already", maxConcurrency, queueCapacity)));
+      return future;
+    }
+    queued.incrementAndGet();
+    try {
+      executor.execute(() -> run(call, future));
+    } catch (RejectedExecutionException e) {
+      queued.decrementAndGet();
+      release(slots);
+      rejected.incrementAndGet();
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private <R> void run(Call<R> call, CompletableFuture<R> future) {
+    try {
+      if (permits != null) {
+        permits.acquire();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      queued.decrementAndGet();
+      release(slots);
+      failed.incrementAndGet();
+      future.completeExceptionally(e);
+      return;
+    }
+    queued.decrementAndGet();
+    active.incrementAndGet();
+    R result = null;
+    Throwable failure = null;
+    try {
+      result = call.call();
+    } catch (Throwable e) {
+      failure = e;
+      failed.incrementAndGet();
+    }
+    active.decrementAndGet();
+    completed.incrementAndGet();
+    release(permits);
+    release(slots);
+    // completed after the counters are updated - thus seen updated by whoever waits for the future
+    if (failure != null) {
+      future.completeExceptionally(failure);
+    } else {
+      future.complete(result);
+    }
+  }
+
+  private static void release(Semaphore semaphore) {
+    if (semaphore != null) {
+      semaphore.release();
+    }
+  }
+
+  /**
+   * Shuts the executor down, if it was created by {@link #create}; the operations already submitted
+   * still complete.
+   */
+  @Override
+  public void close() {
+    if (ownExecutor != null) {
+      ownExecutor.shutdown();
+    }
+  }
+
+  public TreeRepository<T> getRepository() {
+    return repository;
+  }
+
+  /**
+   * @return true if the operations run on virtual threads
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * @return the maximum number of operations running at the same time; 0 if bounded by the executor
+   * passed in
+   */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * @return the maximum number of operations waiting to run; 0 if bounded by the executor passed in
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * @return the number of the threads of the pool; the number of the running operations on virtual
+   * threads, or on an executor passed in
+   */
+  public int getPoolSize() {
+    return ownExecutor instanceof ThreadPoolExecutor
+        ? ((ThreadPoolExecutor) ownExecutor).getPoolSize()
+        : active.get();
+  }
+
+  /**
+   * @return the number of the operations submitted, but not running yet
+   */
+  public int getQueuedCount() {
+    return queued.get();
+  }
+
+  /**
+   * @return the number of the operations running right now
+   */
+  public int getActiveCount() {
+    return active.get();
+  }
+
+  /**
+   * @return the number of the operations completed - successfully or not
+   */
+  public long getCompletedCount() {
+    return completed.get();
+  }
+
+  /**
+   * @return the number of the operations completed with an exception
+   */
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  /**
+   * @return the number of the operations rejected, as the queue was full
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+}
@@ -0,0 +1,85 @@
+package works.hacker.mptt;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Creates the nodes of an entity class through its {@code (String name)} constructor.
+ * <p>
+ * The constructor is looked up once per entity class - when the repository's
+ * {@link TreeRepository#setEntityClass} is called - and kept as a {@link MethodHandle}, instead of
+ * being looked up reflectively on every call. Creating a node is then a plain constructor call through
+ * the handle, which is what a bulk load of millions of nodes pays per node.
+ * <p>
+ * The factories are kept in a {@link ClassValue}, thus they do not keep the entity class - nor its
+ * class loader - from being unloaded, e.g. on a redeploy.
+ */
+@SuppressWarnings("rawtypes")
+public final class NodeFactory<T extends TreeEntity> {
+  private static final ClassValue<NodeFactory<?>> CACHE = new ClassValue<NodeFactory<?>>() {
+    @Override
+    @SuppressWarnings("unchecked")
+    protected NodeFactory<?> computeValue(Class<?> entityClass) {
+      return new NodeFactory<>((Class) entityClass);
+    }
+  };
+  private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, String.class);
+  private static final MethodType CREATE = MethodType.methodType(Object.class, String.class);
+
+  private final Class<T> entityClass;
+  private final MethodHandle constructor;
+
+  private NodeFactory(Class<T> entityClass) {
+    this.entityClass = entityClass;
+    this.constructor = findConstructor(entityClass);
+  }
+
+  /**
+   * Returns the factory for a given entity class; the constructor is looked up on the first call for
+   * that class.
+   *
+   * @param entityClass the class type of the entity
+   * @return the factory of the nodes of the given entity class
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends TreeEntity> NodeFactory<T> of(Class<T> entityClass) {
+    return (NodeFactory<T>) CACHE.get(entityClass);
+  }
+
+  /**
+   * Creates a new node, not attached to any tree.
+   *
+   * @param name the name of the node
+   * @return the new node
+   * @throws NoSuchMethodException     if the entity class has no public {@code (String name)} constructor
+   * @throws InvocationTargetException if the constructor threw
+   */
+  public T create(String name) throws NoSuchMethodException, InvocationTargetException {
+    if (constructor == null) {
+      throw new NoSuchMethodException(
+          String.format("%s.<init>(java.lang.String)", entityClass.getName()));
+    }
+    try {
+      return entityClass.cast((Object) constructor.invokeExact(name));
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+
+  public Class<T> getEntityClass() {
+    return entityClass;
+  }
+
+  private static MethodHandle findConstructor(Class<?> entityClass) {
+    try {
+      return MethodHandles.publicLookup().findConstructor(entityClass, CONSTRUCTOR).asType(CREATE);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      // reported by create - the entity class may well be used without ever creating nodes by name
+      return null;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package works.hacker.mptt;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import works.hacker.mptt.classic.MpttReactiveTreeReader;
+import works.hacker.mptt.dyadic.DyadicReactiveTreeReader;
+
+import java.util.function.BiFunction;
+
+/**
+ * Non-blocking counterpart of the {@code JdbcTreeReader} - runs the same SQL over R2DBC and emits
+ * {@link TreeRow}s, thus a reactive service reads the trees without pinning its event-loop threads on
+ * the blocking JPA {@link TreeRepository}.
+ * <p>
+ * The results are the same as the results of the corresponding {@link TreeRepository} methods - the
+ * sub-trees are emitted in preorder. The rows are emitted as the subscriber requests them - how many
+ * rows the driver fetches ahead is up to the driver. Each read opens a connection of its own from the
+ * {@link ConnectionFactory} - use a pooling factory - and closes it once the read completes, fails or
+ * is cancelled.
+ * <p>
+ * The reader is read-only: the inserts and removals renumber the trees, which is left to the
+ * transactions of the {@link TreeRepository}.
+ *
+ * @see MpttReactiveTreeReader
+ * @see DyadicReactiveTreeReader
+ */
+public abstract class ReactiveTreeReader {
+  protected final ConnectionFactory connectionFactory;
+  protected final TreeTableMapping mapping;
+
+  protected final BiFunction<Row, RowMetadata, TreeRow> rowMapper = (row, metadata) -> new TreeRow(
+      row.get(0, Long.class), row.get(1, String.class), row.get(2, Long.class), row.get(3, Long.class),
+      (Number) row.get(4), (Number) row.get(5));
+
+  protected ReactiveTreeReader(ConnectionFactory connectionFactory, TreeTableMapping mapping) {
+    this.connectionFactory = connectionFactory;
+    this.mapping = mapping;
+  }
+
+  protected abstract String getFindTreeRootSql();
+
+  protected abstract String getFindChildrenSql();
+
+  protected abstract String getFindSubTreeSql();
+
+  protected abstract String getFindAncestorsSql();
+
+  protected abstract String getFindParentSql();
+
+  /**
+   * @see TreeRepository#findTreeRoot
+   */
+  public Mono<TreeRow> findTreeRoot(long treeId) {
+    return query(getFindTreeRootSql(), treeId).next();
+  }
+
+  /**
+   * @see TreeRepository#findChildren
+   */
+  public Flux<TreeRow> findChildren(TreeRow node) {
+    return query(getFindChildrenSql(),
+        node.getTreeId(), node.getLft(), node.getRgt(), node.getDepth() + 1);
+  }
+
+  /**
+   * @see TreeRepository#findSubTree(TreeEntity)
+   */
+  public Flux<TreeRow> findSubTree(TreeRow node) {
+    return query(getFindSubTreeSql(),
+        node.getTreeId(), node.getLft(), node.getRgt());
+  }
+
+  /**
+   * @see TreeRepository#findAncestors
+   */
+  public Flux<TreeRow> findAncestors(TreeRow node) {
+    return query(getFindAncestorsSql(),
+        node.getTreeId(), node.getLft(), node.getRgt(), node.getDepth());
+  }
+
+  /**
+   * @see TreeRepository#findParent
+   */
+  public Mono<TreeRow> findParent(TreeRow node) {
+    return query(getFindParentSql(),
+        node.getTreeId(), node.getLft(), node.getRgt(), node.getDepth() - 1).next();
+  }
+
+  /**
+   * Runs a query on a connection of its own, closed once the rows are consumed.
+   *
+   * @param sql        the query - with the bind markers of R2DBC - see {@link #toBindMarkers}
+   * @param parameters the values of the bind markers, in order
+   * @return the rows of the query
+   */
+  protected Flux<TreeRow> query(String sql, Object... parameters) {
+    return Flux.usingWhen(connectionFactory.create(), connection -> {
+      Statement statement = connection.createStatement(sql);
+      for (int i = 0; i < parameters.length; i++) {
+        statement.bind(i, parameters[i]);
+      }
+      return Flux.from(statement.execute()).concatMap(result -> result.map(rowMapper));
+    }, Connection::close);
+  }
+
+  /**
+   * Replaces the positional {@code ?} parameters of the SQL shared with the {@code JdbcTreeReader} by the
+   * numbered bind markers {@code $1, $2, ...}, as understood by the R2DBC drivers of H2 and PostgreSQL.
+   *
+   * @param sql the SQL with positional {@code ?} parameters - none of them within a literal
+   * @return the SQL with numbered bind markers
+   */
+  protected static String toBindMarkers(String sql) {
+    StringBuilder result = new StringBuilder(sql.length() + 8);
+    int marker = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '?') {
+        result.append('$').append(++marker);
+      } else {
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,72 @@
+package works.hacker.mptt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Helpers for the batch operations of the {@link TreeRepository} implementations.
+ * <p>
+ * The batch operations resolve a relation (ancestors, children, ...) for many nodes at once by
+ * querying with the ids of the nodes in chunks of {@link #CHUNK_SIZE}. Each query returns rows of
+ * {@code [nodeId, relatedNode]}, which are grouped back to the requested nodes in memory.
+ */
+@SuppressWarnings("rawtypes")
+public final class TreeBatches {
+  /**
+   * The maximum number of node ids bound to a single {@code IN}-clause.
+   */
+  public static final int CHUNK_SIZE = 500;
+
+  private TreeBatches() {
+  }
+
+  /**
+   * Groups the related nodes returned by the {@code loader} to the given nodes.
+   * <p>
+   * Related nodes shared between several of the given nodes (e.g. the common ancestors) are
+   * de-duplicated, thus all the lists reference the same instance for the same node id.
+   *
+   * @param nodes  the nodes to resolve the relation for; must not be null
+   * @param loader given a chunk of node ids, returns rows of {@code [nodeId, relatedNode]} in the
+   *               order the related nodes should appear in the result lists
+   * @return map from each given node to the list of its related nodes; empty list if there are none
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends TreeEntity> Map<T, List<T>> groupByNode(
+      Collection<T> nodes, Function<List<Long>, List<Object[]>> loader) {
+    Map<Long, T> requested = new LinkedHashMap<>();
+    nodes.forEach(n -> requested.put(n.getId(), n));
+
+    Map<Long, List<T>> relatedByNodeId = new HashMap<>();
+    Map<Long, T> distinct = new HashMap<>();
+    for (List<Long> chunk : chunk(requested.keySet())) {
+      for (Object[] row : loader.apply(chunk)) {
+        Long nodeId = (Long) row[0];
+        T related = (T) row[1];
+        T shared = distinct.computeIfAbsent(related.getId(), id -> related);
+        relatedByNodeId.computeIfAbsent(nodeId, id -> new ArrayList<>()).add(shared);
+      }
+    }
+
+    Map<T, List<T>> result = new LinkedHashMap<>();
+    requested.forEach((id, node) ->
+        result.put(node, relatedByNodeId.getOrDefault(id, Collections.emptyList())));
+    return result;
+  }
+
+  static List<List<Long>> chunk(Collection<Long> ids) {
+    List<Long> all = new ArrayList<>(new LinkedHashSet<>(ids));
+    List<List<Long>> chunks = new ArrayList<>();
+    for (int i = 0; i < all.size(); i += CHUNK_SIZE) {
+      chunks.add(all.subList(i, Math.min(i + CHUNK_SIZE, all.size())));
+    }
+    return chunks;
+  }
+}
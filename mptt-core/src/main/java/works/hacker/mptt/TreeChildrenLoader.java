@@ -0,0 +1,89 @@
+package works.hacker.mptt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Coalesces individual {@link TreeRepository#findChildren} requests into batched
+ * {@link TreeRepository#findChildrenOfAll} queries - in the spirit of a DataLoader.
+ * <p>
+ * The loader is meant to live for the duration of a single request. Callers first register the
+ * parents, whose children they need, with {@link #load}, and then a single {@link #dispatch} fetches
+ * the children of all the pending parents with one query:
+ * <pre><code>
+ * TreeChildrenLoader&lt;TagTree&gt; loader = new TreeChildrenLoader&lt;&gt;(tagTreeRepo);
+ * CompletableFuture&lt;List&lt;TagTree&gt;&gt; children1 = loader.load(child1);
+ * CompletableFuture&lt;List&lt;TagTree&gt;&gt; children2 = loader.load(child2);
+ * loader.dispatch();
+ * </code></pre>
+ * The results are cached by node id, thus loading the children of the same parent again within the
+ * same request does not trigger another query.
+ *
+ * @see TreeRepository#findChildrenOfAll
+ */
+@SuppressWarnings("rawtypes")
+public class TreeChildrenLoader<T extends TreeEntity> {
+  private final TreeRepository<T> treeRepo;
+
+  private final Map<Long, T> pending = new LinkedHashMap<>();
+  private final Map<Long, CompletableFuture<List<T>>> futures = new HashMap<>();
+
+  public TreeChildrenLoader(TreeRepository<T> treeRepo) {
+    this.treeRepo = treeRepo;
+  }
+
+  /**
+   * Registers a parent node, whose direct children should be fetched with the next {@link #dispatch}.
+   *
+   * @param node the parent node; must not be null; must be part of a tree
+   * @return the future list of the direct children; completed on the next {@link #dispatch}, or
+   * already completed if the children of this node were loaded before
+   */
+  public synchronized CompletableFuture<List<T>> load(T node) {
+    return futures.computeIfAbsent(node.getId(), id -> {
+      pending.put(id, node);
+      return new CompletableFuture<>();
+    });
+  }
+
+  /**
+   * Fetches the children of all the pending parent nodes with a single batched query and completes
+   * their futures.
+   *
+   * @return the number of parent nodes the children were fetched for
+   */
+  public int dispatch() {
+    List<T> batch;
+    synchronized (this) {
+      batch = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    if (batch.isEmpty()) {
+      return 0;
+    }
+
+    try {
+      treeRepo.findChildrenOfAll(batch)
+          .forEach((node, children) -> future(node).complete(children));
+    } catch (RuntimeException e) {
+      batch.forEach(node -> future(node).completeExceptionally(e));
+      throw e;
+    }
+    return batch.size();
+  }
+
+  /**
+   * Forgets all loaded results, e.g. after the tree was changed; pending loads are kept.
+   */
+  public synchronized void clear() {
+    futures.values().removeIf(CompletableFuture::isDone);
+  }
+
+  private synchronized CompletableFuture<List<T>> future(T node) {
+    return futures.get(node.getId());
+  }
+}
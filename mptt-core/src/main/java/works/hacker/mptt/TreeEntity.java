@@ -1,12 +1,10 @@
 package works.hacker.mptt;
 
-import works.hacker.model.classic.MpttNode;
+import org.hibernate.proxy.HibernateProxy;
 import works.hacker.mptt.classic.MpttEntity;
 import works.hacker.mptt.classic.MpttRepository;
-import works.hacker.mptt.classic.MpttRepositoryImpl;
 
 import javax.persistence.*;
-import java.util.Objects;
 
 /**
  * Provides the properties needed to maintain the MPTT (Modified Preorder Tree Traversal) data structure.
@@ -25,15 +23,24 @@ import java.util.Objects;
  * <b>NOTE:</b> left and right are reserved words in MySQL, thus the use of <b>lft</b> and <b>rgt</b>.
  * <p>
  * These properties are managed by the specific implementations of the {@link TreeRepository}.
+ * <p>
+ * The ids are generated by an identity column - deliberately, as in the earlier versions, thus existing
+ * entities and schemas keep working unchanged. Hibernate has to execute the insert of an identity id
+ * right away, thus the inserts of the nodes are <b>not</b> sent in JDBC batches; the updates and the
+ * deletes of the nodes still are.
+ * <p>
+ * The id is mapped by this class, and the generator names of JPA are global to the persistence unit -
+ * thus the generator cannot be chosen per entity.
  *
  * @see MpttEntity
- * @see MpttNode
  * @see MpttRepository
- * @see MpttRepositoryImpl
  * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
  */
 @MappedSuperclass
 public abstract class TreeEntity<T extends Number> {
+  // Hibernate is optional - the entities may be used without it, e.g. by the in-memory algorithms
+  private static final boolean HIBERNATE = isPresent("org.hibernate.proxy.HibernateProxy");
+
   private static final String NO_NAME = "NO_NAME";
   public static final long NO_TREE_ID = -1L;
   public static final long START = 0L;
@@ -135,14 +142,47 @@ public abstract class TreeEntity<T extends Number> {
     return String.format("%s (id: %d) %s", getName(),  getId(), toNodeString());
   }
 
+  /**
+   * The hash code of the id of a persisted node; the identity hash code of a node not persisted yet.
+   * <p>
+   * <b>NOTE:</b> The hash code changes when a node is persisted and gets its id - add nodes to hash
+   * based collections after they were persisted, or keep them there only until then.
+   */
   @Override
   public int hashCode() {
-    return Objects.hash(this.toString());
+    long id = getId();
+    return id == 0 ? System.identityHashCode(this) : Long.hashCode(id);
   }
 
-  @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
+  /**
+   * Two nodes are equal, if they are of the same entity class and have the same id - regardless of
+   * their other properties, which change whenever the tree is renumbered. A node not persisted yet is
+   * only equal to itself.
+   */
   @Override
   public boolean equals(Object o) {
-    return this.toString().equals(o.toString());
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TreeEntity) || entityClassOf(this) != entityClassOf(o)) {
+      return false;
+    }
+    long id = getId();
+    return id != 0 && id == ((TreeEntity<?>) o).getId();
+  }
+
+  private static Class<?> entityClassOf(Object o) {
+    return HIBERNATE && o instanceof HibernateProxy
+        ? ((HibernateProxy) o).getHibernateLazyInitializer().getPersistentClass()
+        : o.getClass();
+  }
+
+  private static boolean isPresent(String className) {
+    try {
+      Class.forName(className, false, TreeEntity.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
   }
 }
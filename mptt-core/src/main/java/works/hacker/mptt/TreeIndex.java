@@ -0,0 +1,238 @@
+package works.hacker.mptt;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, immutable index of the structure of a whole tree, kept in parallel primitive arrays.
+ * <p>
+ * The index is built from one preorder scan of a tree - the ids and the depths of the nodes are all it
+ * needs. It numbers the nodes with its own classic nested-set {@code lft} / {@code rgt} values, thus it
+ * indexes trees of both the classic and the dyadic encoding the same way. For each node, addressed by
+ * its position in preorder, the index stores:
+ * <ul>
+ * <li>{@code id}, {@code lft}, {@code rgt} and {@code depth} - as {@code long[]}</li>
+ * <li>the position of the parent - as {@code int[]}</li>
+ * </ul>
+ * Together with the sorted ids for the lookup by id, that's less than 50 bytes per node.
+ * <p>
+ * All the accessors are array walks or binary searches, which allocate nothing:
+ * <pre>
+ * .                                      position  lft  rgt  parent
+ * └── root                                      0    1   14      -1
+ *     ├── child1                                1    2    9       0
+ *     │   ├── subChild1                         2    3    6       1
+ *     │   │   └── subSubChild                   3    4    5       2
+ *     │   └── subChild2                         4    7    8       1
+ *     └── child2                                5   10   13       0
+ *         └── lastSubChild                      6   11   12       5
+ * </pre>
+ * The sub-tree of the node at position {@code i} is the range of positions
+ * {@code [i, subtreeEnd(i))} - {@code [1, 5)} for {@code child1}.
+ *
+ * @see TreeSnapshot
+ */
+public final class TreeIndex {
+  private final long[] ids;
+  private final long[] lfts;
+  private final long[] rgts;
+  private final long[] depths;
+  private final int[] parents;
+
+  private final long[] sortedIds;
+  private final int[] positionsBySortedId;
+
+  /**
+   * Builds the index of a tree.
+   *
+   * @param ids    the ids of all the nodes of the tree in preorder; the tree root first
+   * @param depths the depths of the nodes, in the same order
+   */
+  public TreeIndex(long[] ids, long[] depths) {
+    if (ids.length == 0 || ids.length != depths.length) {
+      throw new IllegalArgumentException(String.format(
+          "Tree index needs the ids and depths of at least the tree root: %d ids, %d depths",
+          ids.length, depths.length));
+    }
+    int size = ids.length;
+    this.ids = ids.clone();
+    this.depths = depths.clone();
+    lfts = new long[size];
+    rgts = new long[size];
+    parents = new int[size];
+
+    // the stack of the open ancestors of the current node, as positions
+    int[] path = new int[size];
+    int top = -1;
+    long counter = 0;
+    for (int i = 0; i < size; i++) {
+      while (top >= 0 && this.depths[path[top]] >= this.depths[i]) {
+        rgts[path[top--]] = ++counter;
+      }
+      if (top >= 0 ? this.depths[i] != this.depths[path[top]] + 1 : i > 0) {
+        throw new IllegalArgumentException(String.format(
+            "Nodes not in preorder - node %d at depth %d", this.ids[i], this.depths[i]));
+      }
+      parents[i] = top >= 0 ? path[top] : -1;
+      lfts[i] = ++counter;
+      path[++top] = i;
+    }
+    while (top >= 0) {
+      rgts[path[top--]] = ++counter;
+    }
+
+    sortedIds = this.ids.clone();
+    positionsBySortedId = new int[size];
+    for (int i = 0; i < size; i++) {
+      positionsBySortedId[i] = i;
+    }
+    sortByIds(sortedIds, positionsBySortedId);
+  }
+
+  /**
+   * Builds the index of a tree.
+   *
+   * @param preorder all the nodes of the tree in preorder - as returned by
+   *                 {@link TreeRepository#findSubTree} for the tree root
+   * @return the index of the tree
+   */
+  @SuppressWarnings("rawtypes")
+  public static TreeIndex of(List<? extends TreeEntity> preorder) {
+    long[] ids = new long[preorder.size()];
+    long[] depths = new long[preorder.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = preorder.get(i).getId();
+      depths[i] = preorder.get(i).getDepth();
+    }
+    return new TreeIndex(ids, depths);
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  /**
+   * Finds the position of a node by its id with a binary search.
+   *
+   * @param id the id of the node
+   * @return the position of the node in preorder; or -1 if the node is not part of the tree
+   */
+  public int indexOf(long id) {
+    int sorted = Arrays.binarySearch(sortedIds, id);
+    return sorted < 0 ? -1 : positionsBySortedId[sorted];
+  }
+
+  /**
+   * Finds the position of a node by the {@code lft} value of the index with a binary search.
+   *
+   * @param lft the {@code lft} value assigned by the index
+   * @return the position of the node in preorder; or -1 if no node starts at {@code lft}
+   */
+  public int indexOfLft(long lft) {
+    int position = Arrays.binarySearch(lfts, lft);
+    return position < 0 ? -1 : position;
+  }
+
+  public long getId(int index) {
+    return ids[index];
+  }
+
+  public long getLft(int index) {
+    return lfts[index];
+  }
+
+  public long getRgt(int index) {
+    return rgts[index];
+  }
+
+  public long getDepth(int index) {
+    return depths[index];
+  }
+
+  /**
+   * @param index the position of a node
+   * @return the position of the parent; or -1 for the tree root
+   */
+  public int parent(int index) {
+    return parents[index];
+  }
+
+  /**
+   * @param index the position of a node
+   * @return the position right after the last descendant of the node
+   */
+  public int subtreeEnd(int index) {
+    return index + (int) ((rgts[index] - lfts[index] + 1) / 2);
+  }
+
+  /**
+   * @param index the position of a node
+   * @return the position of the first (left-most) child; or -1 for a leaf
+   */
+  public int firstChild(int index) {
+    return isLeaf(index) ? -1 : index + 1;
+  }
+
+  /**
+   * @param index the position of a node
+   * @return the position of the next sibling to the right; or -1 for the last child or the tree root
+   */
+  public int nextSibling(int index) {
+    int parent = parents[index];
+    int next = subtreeEnd(index);
+    return parent >= 0 && next < subtreeEnd(parent) ? next : -1;
+  }
+
+  public boolean isLeaf(int index) {
+    return rgts[index] == lfts[index] + 1;
+  }
+
+  /**
+   * Checks the containment of two nodes.
+   *
+   * @param ancestor   the position of the possible ancestor
+   * @param descendant the position of the possible descendant
+   * @return true if the node at {@code descendant} is in the sub-tree of the node at {@code ancestor},
+   * itself included
+   */
+  public boolean contains(int ancestor, int descendant) {
+    return lfts[ancestor] <= lfts[descendant] && rgts[descendant] <= rgts[ancestor];
+  }
+
+  /**
+   * Heap sort of the ids along with their positions - sorts in place, without boxing the positions.
+   */
+  private static void sortByIds(long[] ids, int[] positions) {
+    int n = ids.length;
+    for (int i = n / 2 - 1; i >= 0; i--) {
+      siftDown(ids, positions, i, n);
+    }
+    for (int end = n - 1; end > 0; end--) {
+      swap(ids, positions, 0, end);
+      siftDown(ids, positions, 0, end);
+    }
+  }
+
+  private static void siftDown(long[] ids, int[] positions, int root, int n) {
+    while (2 * root + 1 < n) {
+      int child = 2 * root + 1;
+      if (child + 1 < n && ids[child] < ids[child + 1]) {
+        child++;
+      }
+      if (ids[root] >= ids[child]) {
+        return;
+      }
+      swap(ids, positions, root, child);
+      root = child;
+    }
+  }
+
+  private static void swap(long[] ids, int[] positions, int i, int j) {
+    long id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+    int position = positions[i];
+    positions[i] = positions[j];
+    positions[j] = position;
+  }
+}
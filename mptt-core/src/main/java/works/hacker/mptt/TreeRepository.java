@@ -0,0 +1,467 @@
+package works.hacker.mptt;
+
+import works.hacker.mptt.classic.MpttEntity;
+import works.hacker.mptt.id.TreeIdAllocator;
+import works.hacker.mptt.metrics.MicrometerTreeMetrics;
+import works.hacker.mptt.metrics.TreeMetrics;
+import works.hacker.mptt.version.TreeVersionPoller;
+import works.hacker.mptt.version.TreeVersionTracker;
+
+import javax.persistence.NoResultException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * JPA repository interface defining the operations of / on an MPTT tree.
+ * <p>
+ * All mutator operations are assumed to persist the changes.
+ *
+ * @see works.hacker.mptt.classic.MpttRepository
+ */
+@SuppressWarnings("rawtypes")
+public interface TreeRepository<T extends TreeEntity> {
+  /**
+   * Sets the class of the entity.
+   * <p>
+   * The entity class should be stored in the state of the repository-instance.
+   * <p>
+   * The entity class is typically used when creating JPQL-queries dynamically. For example:
+   * <pre><code>
+   * tagTreeRepo.setEntityClass(TagTree.class);
+   * </code></pre>
+   * <p>
+   * And then in the repository implementation, you might have something like:
+   * <pre><code>
+   *  {@literal @}Override
+   *   public T findTreeRoot(Long treeId) throws NoResultException {
+   *     String query = String.format(
+   *         "SELECT node FROM %s node" +
+   *             " WHERE node.treeId = :treeId AND node.lft = 1",
+   *         entityClass.getSimpleName());
+   *     return entityManager.createQuery(query, entityClass)
+   *         .setParameter("treeId", treeId)
+   *         .getSingleResult();
+   *   }
+   * </code></pre>
+   * <p>
+   * <b>NOTE:</b> The reason for this method in the interface is <b>Java Generics - Type Erasure</b>.
+   * <p>
+   * Generics are used for tighter type checks at compile time and to provide a generic programming. To
+   * implement generic behaviour, java compiler apply type erasure. Type erasure is a process in which
+   * compiler replaces a generic parameter with actual class or bridge method, so no way to obtain the
+   * type even by using the Reflection API.
+   *
+   * @param entityClass the class type of the entity extending {@link MpttEntity}
+   */
+  void setEntityClass(Class<T> entityClass);
+
+  /**
+   * Sets the cache of the ancestor chains used by {@link #findAncestors} and {@link #findParent}.
+   * <p>
+   * Like the entity class, the cache is stored in the state of the repository-instance. By default there
+   * is no cache - every call queries the database.
+   *
+   * @param ancestorChainCache the cache to use; or null to disable caching
+   */
+  void setAncestorChainCache(AncestorChainCache ancestorChainCache);
+
+  /**
+   * Sets the tracker bumping the version of a tree with every mutation of the tree.
+   * <p>
+   * Needed only when several application instances cache the trees of a shared database - see
+   * {@link TreeVersionPoller}. By default there is no tracker.
+   *
+   * @param treeVersionTracker the tracker to use; or null to disable tracking
+   */
+  void setTreeVersionTracker(TreeVersionTracker treeVersionTracker);
+
+  /**
+   * Sets the allocator of the {@code treeId} of each tree started with {@link #startTree}.
+   * <p>
+   * By default there is no allocator - a random id is drawn and the table is probed for a collision.
+   *
+   * @param treeIdAllocator the allocator to use; or null to draw random ids
+   */
+  void setTreeIdAllocator(TreeIdAllocator treeIdAllocator);
+
+  /**
+   * Sets the metrics receiving the time, the result size and the changed rows of the operations of the
+   * repository - the reads and the mutations of the trees - see {@link MicrometerTreeMetrics}.
+   * <p>
+   * By default the operations are not measured - {@link TreeMetrics#NOOP}.
+   *
+   * @param treeMetrics the metrics to record to; or null to disable measuring
+   */
+  void setTreeMetrics(TreeMetrics treeMetrics);
+
+  T createNode(String name) throws IllegalAccessException, InstantiationException, NoSuchMethodException,
+      InvocationTargetException;
+
+  /**
+   * Creates new nodes in bulk - e.g. for a bulk load; none of them attached to any tree.
+   * <p>
+   * The nodes are created through the constructor resolved once by {@link #setEntityClass} - see
+   * {@link NodeFactory}.
+   *
+   * @param names the names of the nodes
+   * @return the new nodes, in the order of the names
+   * @throws NoSuchMethodException     if the entity class has no public {@code (String name)} constructor
+   * @throws InvocationTargetException if the constructor threw
+   */
+  List<T> createNodes(Stream<String> names) throws NoSuchMethodException, InvocationTargetException;
+
+  /**
+   * Starts a new tree.
+   *
+   * @param node the node to become the root node of this tree; should be a mint node; must not be null
+   * @return the generated tree id
+   * @throws NodeAlreadyAttachedToTree in case the node is part of another tree
+   */
+  Long startTree(T node) throws NodeAlreadyAttachedToTree;
+
+  /**
+   * Finds the tree root node for a given {@code treeId}.
+   *
+   * @param treeId the identifier of the tree
+   * @return the root node of the tree
+   * @throws NoResultException in case there's no such tree
+   */
+  T findTreeRoot(Long treeId) throws NoResultException;
+
+  /**
+   * Finds the identifiers of the largest trees - e.g. to warm up the caches with them.
+   *
+   * @param limit the maximum number of trees to return
+   * @return the identifiers of the trees, the tree with the most nodes first
+   * @see "TreeWarmUp (mptt-jpa)"
+   */
+  List<Long> findLargestTreeIds(int limit);
+
+  /**
+   * Finds a node by the path of names from the tree root down to the node.
+   * <p>
+   * The whole path is resolved with a single query, matching each name against the nodes at the
+   * respective depth within the interval of the previous node of the path.
+   * <p>
+   * Given the following tree representation:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * When {@code tagTreeRepo.findByPath(treeId, Arrays.asList("root", "child1", "subChild2"))}, should
+   * return {@code subChild2}.
+   * When {@code tagTreeRepo.findByPath(treeId, Arrays.asList("root", "child2", "subChild2"))}, should
+   * return an empty optional.
+   * <p>
+   * In case several siblings share the same name, the left-most matching path is used.
+   *
+   * @param treeId the identifier of the tree
+   * @param names  the names of the nodes of the path; the first one is the name of the tree root
+   * @return optional of the last node of the path; or empty optional if there's no such path
+   */
+  Optional<T> findByPath(Long treeId, List<String> names);
+
+  /**
+   * Finds a node by the path of names from the tree root down to the node, creating the missing nodes
+   * of the path.
+   * <p>
+   * Only the missing suffix of the path is created - as a chain of new nodes under the last existing
+   * node of the path, making room for all of them at once.
+   * <p>
+   * Given the tree representation from {@link #findByPath}, when
+   * {@code tagTreeRepo.ensurePath(treeId, Arrays.asList("root", "child2", "new1", "new2"))}, then the
+   * resulting tree should be:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         ├── lastSubChild
+   *         └── new1
+   *             └── new2
+   * </pre>
+   * And the returned node should be {@code new2}. Calling it again returns the same node and creates
+   * nothing.
+   *
+   * @param treeId the identifier of the tree
+   * @param names  the names of the nodes of the path; must not be empty; the first one must be the name
+   *               of the tree root
+   * @return the last node of the path - the existing or the newly created one
+   * @throws NoResultException in case there's no such tree, or its root is not named {@code names[0]}
+   */
+  T ensurePath(Long treeId, List<String> names) throws NoResultException;
+
+  /**
+   * Adds a direct child to a given parent-node.
+   *
+   * @param parent the parent node; must not be null; must be part of a tree
+   * @param child  the child node; must not be null; must not be part of another tree; should be mint
+   * @throws NodeNotInTree             in case {@code parent} is not part of a tree
+   * @throws NodeAlreadyAttachedToTree in case {@code child} is already part of a tree (incl. the parents)
+   */
+  void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree;
+
+  /**
+   * Removes a child and its succeeding sub-tree nodes (if any) from a given parent-node.
+   * <p>
+   * Removing indirect children is allowed.
+   * <p>
+   * Given the following tree representation:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * When {@code tagTreeRepo.removeChild(root, child1)}, then the resulting tree should be:
+   * <pre>
+   * .
+   * └── root
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * And the returned result should be a list containing {@code child1, subChild1, subSubChild, subChild2}.
+   *
+   * @param parent the parent node; must not be null; must be part of a tree
+   * @param child  the child node; must not be null; must be a direct (or indirect) child of the parent
+   * @return the list of removed nodes - the {@code child} and its sub-tree nodes
+   * @throws NodeNotInTree        in case {@code parent} is not part of a tree
+   * @throws NodeNotChildOfParent in case the {@code child}-node is not the sub-tree of the {@code parent}
+   */
+  List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent;
+
+  /**
+   * Finds the direct children of a given parent node.
+   * <p>
+   * Given the following tree representation:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * When {@code tagTreeRepo.findChildren(root)}, then the returned list of direct children should
+   * contain {@code child1, child2}.
+   *
+   * @param node the parent node; must not be null; must be part of a tree
+   * @return the list of the direct children, in preorder
+   */
+  List<T> findChildren(T node);
+
+  /**
+   * Finds the direct children of many parent nodes at once.
+   * <p>
+   * The result is the same as calling {@link #findChildren} for each of the given nodes, but all the
+   * children are fetched with a single joined query (or one query per chunk of
+   * {@link TreeBatches#CHUNK_SIZE} nodes) instead of one query per parent node.
+   * <p>
+   * Given the tree representation from {@link #findChildren}, when
+   * {@code tagTreeRepo.findChildrenOfAll(Arrays.asList(root, child1, child2))}, then the returned map
+   * should contain:
+   * <ul>
+   * <li>{@code root -> [child1, child2]}</li>
+   * <li>{@code child1 -> [subChild1, subChild2]}</li>
+   * <li>{@code child2 -> [lastSubChild]}</li>
+   * </ul>
+   *
+   * @param nodes the parent nodes; must not be null; all nodes must be part of a tree
+   * @return map from each given node to the list of its direct children, in the iteration order of
+   * {@code nodes}
+   * @see TreeChildrenLoader
+   */
+  Map<T, List<T>> findChildrenOfAll(Collection<T> nodes);
+
+  /**
+   * Finds the sub-tree - including the parent and all direct and indirect children - of a given node.
+   * <p>
+   * Given the following tree representation:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * When {@code tagTreeRepo.findSubTree(child1)}, then the returned list of sub-tree nodes should
+   * contain {@code child1, subChild1, subSubChild, subChild2}.
+   *
+   * @param node the parent node; must not be null; must be part of a tree
+   * @return the list of the parent and all of its direct and indirect children nodes, in preorder
+   */
+  List<T> findSubTree(T node);
+
+  /**
+   * Finds the sub-tree of a given node, limited to a number of levels below the node.
+   * <p>
+   * Given the tree representation from {@link #findSubTree(TreeEntity)}, when
+   * {@code tagTreeRepo.findSubTree(root, 1)}, then the returned list of sub-tree nodes should
+   * contain {@code root, child1, child2}.
+   * <p>
+   * When {@code tagTreeRepo.findSubTree(root, 0)}, then the list should only contain {@code root}.
+   *
+   * @param node     the parent node; must not be null; must be part of a tree
+   * @param maxDepth the number of levels below the node to include; must not be negative
+   * @return the list of the parent and its children up to {@code maxDepth} levels below it, in
+   * preorder
+   * @throws IllegalArgumentException if {@code maxDepth} is negative - a Spring Data repository throws
+   *                                  it translated, as the cause of an
+   *                                  {@code org.springframework.dao.InvalidDataAccessApiUsageException}
+   */
+  List<T> findSubTree(T node, long maxDepth);
+
+  /**
+   * Finds the descendants of a given node at exactly one level below the node.
+   * <p>
+   * Given the tree representation from {@link #findSubTree(TreeEntity)}, when
+   * {@code tagTreeRepo.findDescendantsAtDepth(root, 2)}, then the returned list should contain
+   * {@code subChild1, subChild2, lastSubChild}.
+   * <p>
+   * {@code findDescendantsAtDepth(node, 1)} is the same as {@link #findChildren}.
+   *
+   * @param node  the parent node; must not be null; must be part of a tree
+   * @param depth the level below the node, relative to the node; must be positive
+   * @return the list of the descendants at the given level, in preorder
+   * @throws IllegalArgumentException if {@code depth} is less than 1 - the node itself is not its own
+   *                                  descendant; a Spring Data repository throws it translated, as the
+   *                                  cause of an
+   *                                  {@code org.springframework.dao.InvalidDataAccessApiUsageException}
+   */
+  List<T> findDescendantsAtDepth(T node, long depth);
+
+  /**
+   * Finds the leaves - the nodes without children - of the sub-tree of a given node.
+   * <p>
+   * Given the tree representation from {@link #findSubTree(TreeEntity)}, when
+   * {@code tagTreeRepo.findLeaves(child1)}, then the returned list should contain
+   * {@code subSubChild, subChild2}.
+   * <p>
+   * When the given node has no children, the list contains only the node itself.
+   *
+   * @param node the parent node; must not be null; must be part of a tree
+   * @return the list of the leaves of the sub-tree, in preorder
+   */
+  List<T> findLeaves(T node);
+
+  /**
+   * Finds the siblings - the other children of the same parent - of a given node.
+   * <p>
+   * Given the tree representation from {@link #findSubTree(TreeEntity)}, when
+   * {@code tagTreeRepo.findSiblings(subChild2)}, then the returned list should contain
+   * {@code subChild1}.
+   *
+   * @param node must not be null; must be part of a tree
+   * @return the list of the siblings, not including the node itself, in preorder; or empty list if
+   * the given node is a root node or an only child
+   */
+  List<T> findSiblings(T node);
+
+  /**
+   * Finds the list of ancestors of a given node.
+   * <p>
+   * Given the following tree representation:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * When {@code tagTreeRepo.findAncestors(subSubChild)}, then the returned list of ancestors nodes
+   * should contain {@code root, child1, subChild1}.
+   *
+   * @param node must not be null; must be part of a tree
+   * @return the list of all ancestor nodes; or empty list if the given node is a root node
+   */
+  List<T> findAncestors(T node);
+
+  /**
+   * Finds the lists of ancestors of many nodes at once.
+   * <p>
+   * The result is the same as calling {@link #findAncestors} for each of the given nodes, but all the
+   * ancestor chains are resolved with a single joined query (or one query per chunk of
+   * {@link TreeBatches#CHUNK_SIZE} nodes) instead of one query per node. Ancestors shared between
+   * the given nodes are de-duplicated in memory.
+   * <p>
+   * Given the tree representation from {@link #findAncestors}, when
+   * {@code tagTreeRepo.findAncestorsOfAll(Arrays.asList(subSubChild, subChild2, root))}, then the
+   * returned map should contain:
+   * <ul>
+   * <li>{@code subSubChild -> [root, child1, subChild1]}</li>
+   * <li>{@code subChild2 -> [root, child1]}</li>
+   * <li>{@code root -> []}</li>
+   * </ul>
+   *
+   * @param nodes must not be null; all nodes must be part of a tree
+   * @return map from each given node to the list of its ancestors, in the iteration order of
+   * {@code nodes}
+   */
+  Map<T, List<T>> findAncestorsOfAll(Collection<T> nodes);
+
+  /**
+   * Finds the direct parent of a given node.
+   * <p>
+   * Given the following tree representation:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * When {@code tagTreeRepo.findParent(root)}, should return {@code null}.
+   * When {@code tagTreeRepo.findParent(child1)}, should return {@code root}.
+   * When {@code tagTreeRepo.findParent(subChild1)}, should return {@code child1}.
+   *
+   * @param node must not be null; must be part of a tree
+   * @return optional of the direct parent node; or empty optional if the given node is a root
+   */
+  Optional<T> findParent(T node);
+
+  class NodeAlreadyAttachedToTree extends Exception {
+    public NodeAlreadyAttachedToTree(String message) {
+      super(message);
+    }
+  }
+
+  class NodeNotInTree extends Exception {
+    public NodeNotInTree(String message) {
+      super(message);
+    }
+  }
+
+  class NodeNotChildOfParent extends Exception {
+    public NodeNotChildOfParent(String message) {
+      super(message);
+    }
+  }
+}
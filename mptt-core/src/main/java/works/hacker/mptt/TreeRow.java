@@ -0,0 +1,85 @@
+package works.hacker.mptt;
+
+import java.util.Objects;
+
+/**
+ * Lightweight, immutable read-only view of a tree node, as read by the {@code JdbcTreeReader}.
+ * <p>
+ * Holds the same properties as the {@link TreeEntity}, but is not managed by JPA.
+ */
+@SuppressWarnings("rawtypes")
+public final class TreeRow {
+  private final long id;
+  private final String name;
+  private final long treeId;
+  private final long depth;
+  private final Number lft;
+  private final Number rgt;
+
+  public TreeRow(long id, String name, long treeId, long depth, Number lft, Number rgt) {
+    this.id = id;
+    this.name = name;
+    this.treeId = treeId;
+    this.depth = depth;
+    this.lft = lft;
+    this.rgt = rgt;
+  }
+
+  /**
+   * Creates the row view of an entity.
+   *
+   * @param node must not be null
+   * @return the row with the same properties as the given node
+   */
+  public static TreeRow of(TreeEntity node) {
+    return new TreeRow(node.getId(), node.getName(), node.getTreeId(), node.getDepth(), node.getLft(),
+        node.getRgt());
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getTreeId() {
+    return treeId;
+  }
+
+  public long getDepth() {
+    return depth;
+  }
+
+  public Number getLft() {
+    return lft;
+  }
+
+  public Number getRgt() {
+    return rgt;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (id: %d) [treeId: %s | lft: %s | rgt: %s]", name, id, treeId, lft, rgt);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(id);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TreeRow)) {
+      return false;
+    }
+    TreeRow other = (TreeRow) o;
+    return id == other.id && treeId == other.treeId && depth == other.depth &&
+        Objects.equals(name, other.name) && Objects.equals(lft, other.lft) && Objects.equals(rgt, other.rgt);
+  }
+}
@@ -0,0 +1,62 @@
+package works.hacker.mptt;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The recommended indexes of a tree table - every query of the repositories reads a single tree, thus
+ * all the indexes lead with {@code treeId}:
+ * <ul>
+ * <li>{@code (treeId, lft)} - the sub-trees, the ancestors and the preorder, of both encodings</li>
+ * <li>{@code (treeId, rgt)} - the renumbering of the nodes right of an insert or a removal</li>
+ * <li>{@code (treeId, depth, lft)} - the children, the siblings and the descendants at a depth</li>
+ * </ul>
+ * The column lists are constants, thus they can be used in the JPA metadata of the entity:
+ * <pre><code>
+ * &#64;Entity
+ * &#64;Table(indexes = {
+ *     &#64;Index(name = "idx_tagtree_tree_lft", columnList = TreeSchema.TREE_LFT),
+ *     &#64;Index(name = "idx_tagtree_tree_rgt", columnList = TreeSchema.TREE_RGT),
+ *     &#64;Index(name = "idx_tagtree_tree_depth_lft", columnList = TreeSchema.TREE_DEPTH_LFT)})
+ * public class TagTree extends MpttEntity {
+ * </code></pre>
+ * Where the schema is not generated by Hibernate, {@link #createIndexes} returns the DDL of the same
+ * indexes - e.g. for a migration script.
+ */
+public final class TreeSchema {
+  public static final String TREE_LFT = "treeId, lft";
+  public static final String TREE_RGT = "treeId, rgt";
+  public static final String TREE_DEPTH_LFT = "treeId, depth, lft";
+
+  private TreeSchema() {
+  }
+
+  /**
+   * @param table  the name of the tree table
+   * @param suffix the suffix naming the columns of the index - e.g. {@code tree_lft}
+   * @return the name of the index - {@code idx_<table>_<suffix>}, in lower case
+   */
+  public static String indexName(String table, String suffix) {
+    return String.format("idx_%s_%s", table, suffix).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Returns the DDL creating the recommended indexes of a tree table.
+   *
+   * @param mapping the table and column names of the tree entity
+   * @return the {@code CREATE INDEX} statements, one per index
+   */
+  public static List<String> createIndexes(TreeTableMapping mapping) {
+    String table = mapping.getTable();
+    return Arrays.asList(
+        createIndex(table, "tree_lft", mapping.getTreeId(), mapping.getLft()),
+        createIndex(table, "tree_rgt", mapping.getTreeId(), mapping.getRgt()),
+        createIndex(table, "tree_depth_lft", mapping.getTreeId(), mapping.getDepth(), mapping.getLft()));
+  }
+
+  private static String createIndex(String table, String suffix, String... columns) {
+    return String.format("CREATE INDEX %s ON %s (%s)",
+        indexName(table, suffix), table, String.join(", ", columns));
+  }
+}
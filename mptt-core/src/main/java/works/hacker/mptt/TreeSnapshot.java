@@ -0,0 +1,194 @@
+package works.hacker.mptt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable in-memory copy of a whole tree, answering the read operations of the
+ * {@link TreeRepository} without querying the database.
+ * <p>
+ * The snapshot is built from the nodes of the tree in preorder - as returned by
+ * {@link TreeRepository#findSubTree} for the tree root. The structure of the tree is kept in a
+ * {@link TreeIndex}, next to the list of the entities, thus the snapshot works the same for both the
+ * classic and the dyadic encoding. The nodes are addressed by their position in preorder, e.g.:
+ * <pre>
+ * .
+ * └── root                  [0]
+ *     ├── child1            [1]
+ *     │   ├── subChild1     [2]
+ *     │   │   └── subSubChild [3]
+ *     │   └── subChild2     [4]
+ *     └── child2            [5]
+ *         └── lastSubChild  [6]
+ * </pre>
+ * The sub-tree of a node is the range from its position up to (excluding) its end - {@code [1, 5)} for
+ * {@code child1}.
+ * <p>
+ * A snapshot is never changed - a changed tree is loaded into a new snapshot. The entities are shared
+ * by all the readers of the snapshot and must be treated as read-only.
+ *
+ * @see "CachingTreeRepository (mptt-jpa)"
+ */
+@SuppressWarnings("rawtypes")
+public final class TreeSnapshot<T extends TreeEntity> {
+  private final List<T> nodes;
+  private final TreeIndex index;
+
+  /**
+   * Builds the snapshot of a tree.
+   *
+   * @param preorder all the nodes of the tree in preorder; the tree root first
+   */
+  public TreeSnapshot(List<T> preorder) {
+    if (preorder.isEmpty()) {
+      throw new IllegalArgumentException("Tree snapshot must contain at least the tree root");
+    }
+    nodes = Collections.unmodifiableList(new ArrayList<>(preorder));
+    index = TreeIndex.of(nodes);
+  }
+
+  public long getTreeId() {
+    return getRoot().getTreeId();
+  }
+
+  public T getRoot() {
+    return nodes.get(0);
+  }
+
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * @return the index of the structure of the tree
+   */
+  public TreeIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Finds the position of a node in the snapshot by the id of the node.
+   *
+   * @param node the node to look up
+   * @return the position of the node in preorder; or -1 if the node is not part of the snapshot
+   */
+  public int indexOf(T node) {
+    return node.getTreeId() == getTreeId() ? index.indexOf(node.getId()) : -1;
+  }
+
+  public T getNode(int position) {
+    return nodes.get(position);
+  }
+
+  /**
+   * @param position the position of a node
+   * @return the position of the parent node; or -1 for the tree root
+   */
+  public int getParent(int position) {
+    return index.parent(position);
+  }
+
+  /**
+   * @param position the position of a node
+   * @return the position right after the last descendant of the node
+   */
+  public int getEnd(int position) {
+    return index.subtreeEnd(position);
+  }
+
+  public List<T> findChildren(int position) {
+    List<T> children = new ArrayList<>();
+    for (int i = index.firstChild(position); i >= 0; i = index.nextSibling(i)) {
+      children.add(nodes.get(i));
+    }
+    return children;
+  }
+
+  public List<T> findSubTree(int position) {
+    return new ArrayList<>(nodes.subList(position, index.subtreeEnd(position)));
+  }
+
+  public List<T> findSubTree(int position, long maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException(String.format("maxDepth must not be negative: %d", maxDepth));
+    }
+    long depth = index.getDepth(position) + maxDepth;
+    List<T> subTree = new ArrayList<>();
+    for (int i = position, end = index.subtreeEnd(position); i < end; i++) {
+      if (index.getDepth(i) <= depth) {
+        subTree.add(nodes.get(i));
+      }
+    }
+    return subTree;
+  }
+
+  public List<T> findDescendantsAtDepth(int position, long depth) {
+    if (depth < 1) {
+      throw new IllegalArgumentException(String.format("depth must be positive: %d", depth));
+    }
+    long absoluteDepth = index.getDepth(position) + depth;
+    List<T> descendants = new ArrayList<>();
+    for (int i = position, end = index.subtreeEnd(position); i < end; i++) {
+      if (index.getDepth(i) == absoluteDepth) {
+        descendants.add(nodes.get(i));
+      }
+    }
+    return descendants;
+  }
+
+  public List<T> findLeaves(int position) {
+    List<T> leaves = new ArrayList<>();
+    for (int i = position, end = index.subtreeEnd(position); i < end; i++) {
+      if (index.isLeaf(i)) {
+        leaves.add(nodes.get(i));
+      }
+    }
+    return leaves;
+  }
+
+  public List<T> findSiblings(int position) {
+    int parent = index.parent(position);
+    List<T> siblings = new ArrayList<>();
+    for (int i = parent < 0 ? -1 : index.firstChild(parent); i >= 0; i = index.nextSibling(i)) {
+      if (i != position) {
+        siblings.add(nodes.get(i));
+      }
+    }
+    return siblings;
+  }
+
+  public List<T> findAncestors(int position) {
+    List<T> ancestors = new ArrayList<>();
+    for (int i = index.parent(position); i >= 0; i = index.parent(i)) {
+      ancestors.add(nodes.get(i));
+    }
+    Collections.reverse(ancestors);
+    return ancestors;
+  }
+
+  /**
+   * Finds a node by the path of names from the tree root down to the node.
+   *
+   * @param names the names of the nodes of the path; the first one is the name of the tree root
+   * @return the position of the last node of the path; or -1 if there's no such path
+   * @see TreeRepository#findByPath
+   */
+  public int findByPath(List<String> names) {
+    if (names.isEmpty() || !getRoot().getName().equals(names.get(0))) {
+      return -1;
+    }
+    int position = 0;
+    for (String name : names.subList(1, names.size())) {
+      int child = index.firstChild(position);
+      while (child >= 0 && !nodes.get(child).getName().equals(name)) {
+        child = index.nextSibling(child);
+      }
+      if (child < 0) {
+        return -1;
+      }
+      position = child;
+    }
+    return position;
+  }
+}
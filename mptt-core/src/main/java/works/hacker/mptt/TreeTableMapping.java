@@ -0,0 +1,74 @@
+package works.hacker.mptt;
+
+/**
+ * The table and column names of a {@link TreeEntity}, as needed for reading the tree with plain SQL.
+ *
+ * @see "JdbcTreeReader (mptt-jpa)"
+ */
+@SuppressWarnings("rawtypes")
+public class TreeTableMapping {
+  private final String table;
+  private final String id;
+  private final String name;
+  private final String treeId;
+  private final String depth;
+  private final String lft;
+  private final String rgt;
+
+  public TreeTableMapping(String table, String id, String name, String treeId, String depth, String lft,
+      String rgt) {
+    this.table = table;
+    this.id = id;
+    this.name = name;
+    this.treeId = treeId;
+    this.depth = depth;
+    this.lft = lft;
+    this.rgt = rgt;
+  }
+
+  /**
+   * Creates the mapping for an entity class mapped with the default Hibernate naming - the table named
+   * after the entity and the columns named after the properties of the {@link TreeEntity}.
+   *
+   * @param entityClass the class type of the entity
+   * @return the mapping of the entity
+   */
+  public static TreeTableMapping of(Class<? extends TreeEntity> entityClass) {
+    return new TreeTableMapping(entityClass.getSimpleName(), "id", "name", "treeId", "depth", "lft", "rgt");
+  }
+
+  /**
+   * @return the columns of a {@link TreeRow} - {@code id, name, treeId, depth, lft, rgt} - in this order
+   */
+  public String getColumns() {
+    return String.join(", ", id, name, treeId, depth, lft, rgt);
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getTreeId() {
+    return treeId;
+  }
+
+  public String getDepth() {
+    return depth;
+  }
+
+  public String getLft() {
+    return lft;
+  }
+
+  public String getRgt() {
+    return rgt;
+  }
+}
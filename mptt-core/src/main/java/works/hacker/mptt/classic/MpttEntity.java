@@ -3,9 +3,19 @@ package works.hacker.mptt.classic;
 import works.hacker.mptt.TreeEntity;
 
 import javax.persistence.MappedSuperclass;
+import java.util.Comparator;
 
 @MappedSuperclass
 public class MpttEntity extends TreeEntity<Long> {
+  /**
+   * Orders the nodes in preorder - by tree, then by {@code lft}. Compares the primitive values only,
+   * thus allocates nothing.
+   */
+  public static final Comparator<MpttEntity> PREORDER = (a, b) -> {
+    int byTree = Long.compare(a.getTreeId(), b.getTreeId());
+    return byTree != 0 ? byTree : Long.compare(a.getLft(), b.getLft());
+  };
+
   public MpttEntity() {
     super();
   }
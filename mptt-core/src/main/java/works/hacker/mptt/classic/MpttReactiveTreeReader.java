@@ -0,0 +1,53 @@
+package works.hacker.mptt.classic;
+
+import io.r2dbc.spi.ConnectionFactory;
+import works.hacker.mptt.ReactiveTreeReader;
+import works.hacker.mptt.TreeTableMapping;
+
+/**
+ * {@link ReactiveTreeReader} for the trees of {@link MpttEntity}s.
+ *
+ * @see "MpttJdbcTreeReader (mptt-jpa)"
+ */
+public class MpttReactiveTreeReader extends ReactiveTreeReader {
+  private final String findTreeRootSql;
+  private final String findChildrenSql;
+  private final String findSubTreeSql;
+  private final String findAncestorsSql;
+  private final String findParentSql;
+
+  public MpttReactiveTreeReader(ConnectionFactory connectionFactory, TreeTableMapping mapping) {
+    super(connectionFactory, mapping);
+    MpttSql sql = new MpttSql(mapping);
+    findTreeRootSql = toBindMarkers(sql.findTreeRoot);
+    findChildrenSql = toBindMarkers(sql.findChildren);
+    findSubTreeSql = toBindMarkers(sql.findSubTree);
+    findAncestorsSql = toBindMarkers(sql.findAncestors);
+    findParentSql = toBindMarkers(sql.findParent);
+  }
+
+  @Override
+  protected String getFindTreeRootSql() {
+    return findTreeRootSql;
+  }
+
+  @Override
+  protected String getFindChildrenSql() {
+    return findChildrenSql;
+  }
+
+  @Override
+  protected String getFindSubTreeSql() {
+    return findSubTreeSql;
+  }
+
+  @Override
+  protected String getFindAncestorsSql() {
+    return findAncestorsSql;
+  }
+
+  @Override
+  protected String getFindParentSql() {
+    return findParentSql;
+  }
+}
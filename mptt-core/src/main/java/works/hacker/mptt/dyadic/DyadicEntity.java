@@ -0,0 +1,160 @@
+package works.hacker.mptt.dyadic;
+
+import works.hacker.mptt.TreeEntity;
+
+import javax.persistence.Column;
+import javax.persistence.MappedSuperclass;
+import java.util.Comparator;
+
+@MappedSuperclass
+public class DyadicEntity extends TreeEntity<Double> {
+  public static final long START = 0;
+  public static final long END = 1;
+
+  /**
+   * Orders the nodes in preorder - by tree, then by {@code lft}, then by {@code depth}, as the first
+   * child shares its {@code lft} with its parent.
+   * <p>
+   * The {@code lft} values are compared as the exact fractions {@code lftN / lftD} - see
+   * {@link #compareFractions} - not as the rounded {@code double} values, which stop telling the deep
+   * nodes apart. Compares the primitive values only, thus allocates nothing.
+   */
+  public static final Comparator<DyadicEntity> PREORDER = (a, b) -> {
+    int result = Long.compare(a.getTreeId(), b.getTreeId());
+    if (result == 0) {
+      result = compareFractions(a.getLftN(), a.getLftD(), b.getLftN(), b.getLftD());
+    }
+    return result != 0 ? result : Long.compare(a.getDepth(), b.getDepth());
+  };
+
+  @Column(nullable = false)
+  private long lftN;
+
+  @Column(nullable = false)
+  private long lftD;
+
+  @Column(nullable = false)
+  private long rgtN;
+
+  @Column(nullable = false)
+  private long rgtD;
+
+  public DyadicEntity() {
+    super();
+  }
+
+  public DyadicEntity(String name) {
+    super(name);
+  }
+
+  @Override
+  public void setDefaults() {
+    super.setDefaults();
+
+    this.lftN = START;
+    this.lftD = END;
+
+    this.rgtN = END;
+    this.rgtD = END;
+
+    this.lft = (double) lftN / (double) lftD;
+    this.rgt = (double) rgtN / (double) rgtD;
+  }
+
+  @Override
+  public Double getStartLft() {
+    return (double) START;
+  }
+
+  @Override
+  public Double getStartRgt() {
+    return (double) END;
+  }
+
+  private void updateHead() {
+    this.lft = (double) lftN / (double) lftD;
+  }
+
+  private void updateTail() {
+    this.rgt = (double) rgtN / (double) rgtD;
+  }
+
+  public long getLftN() {
+    return lftN;
+  }
+
+  public void setLftN(long lftN) {
+    this.lftN = lftN;
+    updateHead();
+  }
+
+  public long getLftD() {
+    return lftD;
+  }
+
+  public void setLftD(long lftD) {
+    if (lftD == 0) throw new IllegalArgumentException("Will lead to division by zero");
+    this.lftD = lftD;
+    updateHead();
+  }
+
+  public long getRgtN() {
+    return rgtN;
+  }
+
+  public void setRgtN(long rgtN) {
+    this.rgtN = rgtN;
+    updateTail();
+  }
+
+  public long getRgtD() {
+    return rgtD;
+  }
+
+  public void setRgtD(long rgtD) {
+    if (rgtD == 0) throw new IllegalArgumentException("Will lead to division by zero");
+    this.rgtD = rgtD;
+    updateTail();
+  }
+
+  /**
+   * Compares two fractions exactly, without multiplying - thus without overflowing, no matter the size
+   * of the numerators and denominators.
+   * <p>
+   * Compares the integer parts first; if they are equal, the fractional parts {@code r1 / d1} and
+   * {@code r2 / d2} compare as their reciprocals {@code d2 / r2} and {@code d1 / r1} - the continued
+   * fraction expansion, which ends within the steps of Euclid's algorithm.
+   *
+   * @param n1 the numerator of the first fraction; not negative
+   * @param d1 the denominator of the first fraction; positive
+   * @param n2 the numerator of the second fraction; not negative
+   * @param d2 the denominator of the second fraction; positive
+   * @return negative, zero or positive as the first fraction is less than, equal to or greater than the
+   * second
+   */
+  public static int compareFractions(long n1, long d1, long n2, long d2) {
+    int sign = 1;
+    while (true) {
+      long q1 = n1 / d1;
+      long q2 = n2 / d2;
+      if (q1 != q2) {
+        return sign * Long.compare(q1, q2);
+      }
+      long r1 = n1 % d1;
+      long r2 = n2 % d2;
+      if (r1 == 0 || r2 == 0) {
+        return sign * Long.compare(r1 == 0 ? 0 : 1, r2 == 0 ? 0 : 1);
+      }
+      n1 = d1;
+      d1 = r1;
+      n2 = d2;
+      d2 = r2;
+      sign = -sign;
+    }
+  }
+
+  @Override
+  protected String toNodeString() {
+    return String.format("[treeId: %d | lft: %d/%d | rgt: %d/%d]", treeId, lftN, lftD, rgtN, rgtD);
+  }
+}
@@ -0,0 +1,216 @@
+package works.hacker.mptt.dyadic;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The JPQL queries of the {@code DyadicRepositoryImpl}, prepared once per entity class.
+ * <p>
+ * The queries depend only on the name of the entity, thus instead of formatting the query strings on
+ * every call, they are formatted once - when {@code DyadicRepositoryImpl.setEntityClass} is
+ * called - and cached per entity class. Passing the very same query string on each call also lets
+ * Hibernate serve the parsed query from its query plan cache.
+ * <p>
+ * The cache is a {@link ClassValue}, thus it does not keep the entity class - nor its class loader -
+ * from being unloaded, e.g. on a redeploy.
+ */
+public final class DyadicQueries {
+  private static final ClassValue<DyadicQueries> CACHE = new ClassValue<DyadicQueries>() {
+    @Override
+    protected DyadicQueries computeValue(Class<?> entityClass) {
+      return new DyadicQueries(entityClass.getSimpleName());
+    }
+  };
+
+  public final String findAnyByTreeId;
+  public final String findTreeRoot;
+  public final String findAllById;
+  public final String findLargestTreeIds;
+  public final String findYoungestChild;
+  public final String findChildren;
+  public final String findChildrenOfAll;
+  public final String findSubTree;
+  public final String findSubTreeWithMaxDepth;
+  public final String findDescendantsAtDepth;
+  public final String findLeaves;
+  public final String findSiblings;
+  public final String findAncestors;
+  public final String findAncestorsOfAll;
+  public final String findParent;
+  public final String findPathCandidates;
+
+  private final String entityName;
+  private final Map<Integer, String> findByPath = new ConcurrentHashMap<>();
+
+  private DyadicQueries(String entityName) {
+    this.entityName = entityName;
+    findAnyByTreeId = String.format(
+        "SELECT node FROM %s node WHERE node.treeId = :treeId",
+        entityName);
+    findTreeRoot = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.lft = 0 AND node.rgt = 1",
+        entityName);
+    findAllById = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.treeId = :treeId AND node.id IN :ids",
+        entityName);
+    findLargestTreeIds = String.format(
+        "SELECT node.treeId FROM %s node" +
+            " GROUP BY node.treeId" +
+            " ORDER BY COUNT(node.id) DESC",
+        entityName);
+    findYoungestChild = String.format(
+        "SELECT youngest FROM %s youngest" +
+            " WHERE youngest.treeId = :treeId" +
+            " AND youngest.depth = :depth" +
+            " AND :lft <= youngest.lft" +
+            " AND youngest.rgt <= :rgt" +
+            " AND youngest.rgtD = (" +
+            "SELECT MAX(node.rgtD) FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.depth = :depth" +
+            " AND :lft <= node.lft" +
+            " AND node.rgt <= :rgt" +
+            ")",
+        entityName, entityName);
+    findChildren = String.format(
+        "SELECT child" +
+            " FROM %s child" +
+            " WHERE child.treeId = :treeId" +
+            " AND :lft <= child.lft AND child.rgt <= :rgt" +
+            " AND child.depth = :depth" +
+            " ORDER BY child.lft ASC",
+        entityName);
+    findChildrenOfAll = String.format(
+        "SELECT parent.id, child" +
+            " FROM %s parent, %s child" +
+            " WHERE parent.id IN :ids" +
+            " AND child.treeId = parent.treeId" +
+            " AND parent.lft <= child.lft AND child.rgt <= parent.rgt" +
+            " AND child.depth = parent.depth + 1" +
+            " ORDER BY parent.treeId ASC, child.lft ASC",
+        entityName, entityName);
+    findSubTree = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lft AND node.rgt <= :rgt" +
+            " ORDER BY node.lft ASC, node.depth ASC",
+        entityName);
+    findSubTreeWithMaxDepth = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lft AND node.rgt <= :rgt" +
+            " AND node.depth <= :maxDepth" +
+            " ORDER BY node.lft ASC, node.depth ASC",
+        entityName);
+    findDescendantsAtDepth = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lft AND node.rgt <= :rgt" +
+            " AND node.depth = :depth" +
+            " ORDER BY node.lft ASC",
+        entityName);
+    findLeaves = String.format(
+        "SELECT leaf" +
+            " FROM %s leaf" +
+            " WHERE leaf.treeId = :treeId" +
+            " AND :lft <= leaf.lft AND leaf.rgt <= :rgt" +
+            " AND NOT EXISTS (" +
+            "SELECT child FROM %s child" +
+            " WHERE child.treeId = leaf.treeId" +
+            " AND child.depth = leaf.depth + 1" +
+            " AND leaf.lft <= child.lft" +
+            " AND child.rgt <= leaf.rgt" +
+            ")" +
+            " ORDER BY leaf.lft ASC",
+        entityName, entityName);
+    findSiblings = String.format(
+        "SELECT sibling" +
+            " FROM %s sibling, %s parent" +
+            " WHERE parent.treeId = :treeId" +
+            " AND parent.lft <= :lft AND :rgt <= parent.rgt" +
+            " AND parent.depth = :parentDepth" +
+            " AND sibling.treeId = :treeId" +
+            " AND parent.lft <= sibling.lft AND sibling.rgt <= parent.rgt" +
+            " AND sibling.depth = :depth" +
+            " AND sibling.id <> :id" +
+            " ORDER BY sibling.lft ASC",
+        entityName, entityName);
+    findAncestors = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.lft <= :lft AND :rgt <= node.rgt" +
+            " AND node.depth < :depth" +
+            " ORDER BY node.depth ASC",
+        entityName);
+    findAncestorsOfAll = String.format(
+        "SELECT node.id, ancestor" +
+            " FROM %s node, %s ancestor" +
+            " WHERE node.id IN :ids" +
+            " AND ancestor.treeId = node.treeId" +
+            " AND ancestor.lft <= node.lft AND node.rgt <= ancestor.rgt" +
+            " AND ancestor.depth < node.depth" +
+            " ORDER BY node.treeId ASC, ancestor.depth ASC",
+        entityName, entityName);
+    findParent = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.lft <= :lft AND :rgt <= node.rgt" +
+            " AND node.depth = :depth",
+        entityName);
+    findPathCandidates = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.depth < :depth" +
+            " AND node.name IN :names" +
+            " ORDER BY node.lft ASC, node.depth ASC",
+        entityName);
+  }
+
+  /**
+   * Returns the queries for a given entity class; formatted on the first call for that class.
+   *
+   * @param entityClass the class type of the entity extending {@link DyadicEntity}
+   * @return the queries for the given entity class
+   */
+  public static DyadicQueries of(Class<? extends DyadicEntity> entityClass) {
+    return CACHE.get(entityClass);
+  }
+
+  /**
+   * Returns the query resolving a path of a given length - a self-join of one node per level, each
+   * matched by its name and depth within the interval of the node of the previous level.
+   * <p>
+   * The parameters are {@code treeId} and {@code name0} to {@code name<length - 1>}; formatted on the
+   * first call for the given length.
+   *
+   * @param length the number of the names of the path; must be positive
+   * @return the query selecting the last node of the path
+   */
+  public String findByPath(int length) {
+    return findByPath.computeIfAbsent(length, this::formatFindByPath);
+  }
+
+  private String formatFindByPath(int length) {
+    StringBuilder from = new StringBuilder();
+    StringBuilder where = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      from.append(i == 0 ? " FROM " : ", ").append(entityName).append(" n").append(i);
+      where.append(i == 0 ? " WHERE " : " AND ").append(String.format(
+          "n%1$d.treeId = :treeId AND n%1$d.depth = %1$d AND n%1$d.name = :name%1$d", i));
+      if (i > 0) {
+        where.append(String.format(
+            " AND n%1$d.lft <= n%2$d.lft AND n%2$d.rgt <= n%1$d.rgt", i - 1, i));
+      }
+    }
+    return String.format("SELECT n%1$d%2$s%3$s ORDER BY n%1$d.lft ASC", length - 1, from, where);
+  }
+}
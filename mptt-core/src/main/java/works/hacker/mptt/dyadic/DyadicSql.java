@@ -0,0 +1,54 @@
+package works.hacker.mptt.dyadic;
+
+import works.hacker.mptt.TreeTableMapping;
+
+/**
+ * The plain SQL reads of the trees of {@link DyadicEntity}s, built once from the {@link TreeTableMapping},
+ * with positional {@code ?} parameters - shared by the {@code DyadicJdbcTreeReader} and the
+ * {@link DyadicReactiveTreeReader}.
+ */
+public final class DyadicSql {
+  public final String findTreeRoot;
+  public final String findChildren;
+  public final String findSubTree;
+  public final String findAncestors;
+  public final String findParent;
+
+  public DyadicSql(TreeTableMapping mapping) {
+    findTreeRoot = String.format(
+        "SELECT %s FROM %s" +
+            " WHERE %s = ?" +
+            " AND %s = 0 AND %s = 1",
+        mapping.getColumns(), mapping.getTable(), mapping.getTreeId(), mapping.getLft(), mapping.getRgt());
+    findChildren = String.format(
+        "SELECT %s FROM %s" +
+            " WHERE %s = ?" +
+            " AND ? <= %s AND %s <= ?" +
+            " AND %s = ?" +
+            " ORDER BY %s ASC",
+        mapping.getColumns(), mapping.getTable(), mapping.getTreeId(), mapping.getLft(), mapping.getRgt(),
+        mapping.getDepth(), mapping.getLft());
+    findSubTree = String.format(
+        "SELECT %s FROM %s" +
+            " WHERE %s = ?" +
+            " AND ? <= %s AND %s <= ?" +
+            " ORDER BY %s ASC, %s ASC",
+        mapping.getColumns(), mapping.getTable(), mapping.getTreeId(), mapping.getLft(), mapping.getRgt(),
+        mapping.getLft(), mapping.getDepth());
+    findAncestors = String.format(
+        "SELECT %s FROM %s" +
+            " WHERE %s = ?" +
+            " AND %s <= ? AND ? <= %s" +
+            " AND %s < ?" +
+            " ORDER BY %s ASC",
+        mapping.getColumns(), mapping.getTable(), mapping.getTreeId(), mapping.getLft(), mapping.getRgt(),
+        mapping.getDepth(), mapping.getDepth());
+    findParent = String.format(
+        "SELECT %s FROM %s" +
+            " WHERE %s = ?" +
+            " AND %s <= ? AND ? <= %s" +
+            " AND %s = ?",
+        mapping.getColumns(), mapping.getTable(), mapping.getTreeId(), mapping.getLft(), mapping.getRgt(),
+        mapping.getDepth());
+  }
+}
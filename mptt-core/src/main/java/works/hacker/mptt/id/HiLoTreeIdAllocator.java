@@ -0,0 +1,46 @@
+package works.hacker.mptt.id;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Allocates the {@code treeId}s in blocks - one round trip to the database per {@code blockSize} new
+ * trees.
+ * <p>
+ * Each value {@code hi} of the underlying allocator reserves the block of ids
+ * {@code [hi * blockSize, (hi + 1) * blockSize)}, which are then handed out from memory. The values are
+ * unique across the application instances, thus the blocks are too. The ids left in the block of an
+ * instance are lost when it stops - the ids are unique, not gap-less.
+ */
+public class HiLoTreeIdAllocator implements TreeIdAllocator {
+  private final TreeIdAllocator hiAllocator;
+  private final int blockSize;
+
+  private long next;
+  private long end;
+
+  /**
+   * @param hiAllocator the allocator of the block numbers - e.g. a {@code SequenceTreeIdAllocator}
+   * @param blockSize   the number of ids reserved at once
+   */
+  public HiLoTreeIdAllocator(TreeIdAllocator hiAllocator, int blockSize) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException(String.format("blockSize must be positive: %d", blockSize));
+    }
+    this.hiAllocator = hiAllocator;
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public synchronized long allocate(EntityManager entityManager) {
+    if (next == end) {
+      long hi = hiAllocator.allocate(entityManager);
+      next = Math.multiplyExact(hi, (long) blockSize);
+      end = next + blockSize;
+    }
+    return next++;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+}
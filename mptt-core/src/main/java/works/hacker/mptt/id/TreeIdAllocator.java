@@ -0,0 +1,27 @@
+package works.hacker.mptt.id;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Allocates the {@code treeId} of each new tree.
+ * <p>
+ * Without an allocator, the repositories draw random ids and probe the table for a collision - a query
+ * per new tree, and racy when two transactions draw the same id. An allocator backed by the database
+ * hands out unique ids to all the threads and application instances, without probing:
+ * <pre><code>
+ * tagTreeRepo.setTreeIdAllocator(new HiLoTreeIdAllocator(new SequenceTreeIdAllocator("tree_id_seq"), 100));
+ * </code></pre>
+ *
+ * @see "SequenceTreeIdAllocator (mptt-jpa)"
+ * @see HiLoTreeIdAllocator
+ */
+@FunctionalInterface
+public interface TreeIdAllocator {
+  /**
+   * Allocates a new, unique {@code treeId}; called within the transaction starting the tree.
+   *
+   * @param entityManager the entity manager of the repository
+   * @return the allocated {@code treeId}; never {@link works.hacker.mptt.TreeEntity#NO_TREE_ID}
+   */
+  long allocate(EntityManager entityManager);
+}
@@ -0,0 +1,163 @@
+package works.hacker.mptt.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import works.hacker.mptt.TreeEntity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Publishes the measurements of the tree repositories to a Micrometer {@link MeterRegistry}:
+ * <ul>
+ * <li>{@code tree.operation} - timer of each repository method</li>
+ * <li>{@code tree.operation.results} - distribution summary of the number of the nodes returned - the
+ * size of the subtree, the children, the ancestors, etc.</li>
+ * <li>{@code tree.rows.shifted} - counter of the rows renumbered by {@code addChild}, {@code removeChild}
+ * and {@code ensurePath}; always 0 for the dyadic encoding</li>
+ * <li>{@code tree.rows.deleted} - counter of the rows deleted by {@code removeChild}</li>
+ * </ul>
+ * The meters are tagged by the {@code operation} and the {@code entity} - the simple name of the entity
+ * class. With {@code treeIdBuckets} set, also by the {@code tree} - the {@code treeId} modulo the number
+ * of the buckets, or {@code none} for the operations spanning several trees; a bucket per tree would
+ * make a time series per tree.
+ * <p>
+ * The meters are registered on first use and looked up without allocating.
+ */
+public class MicrometerTreeMetrics implements TreeMetrics {
+  public static final String OPERATION = "tree.operation";
+  public static final String RESULTS = "tree.operation.results";
+  public static final String SHIFTED = "tree.rows.shifted";
+  public static final String DELETED = "tree.rows.deleted";
+
+  private final MeterRegistry registry;
+  private final int treeIdBuckets;
+
+  private final MeterCache<Timer> timers;
+  private final MeterCache<DistributionSummary> results;
+  private final MeterCache<Counter> shifted;
+  private final MeterCache<Counter> deleted;
+
+  /**
+   * Creates the metrics tagged by the operation and the entity only.
+   */
+  public MicrometerTreeMetrics(MeterRegistry registry) {
+    this(registry, 0);
+  }
+
+  /**
+   * @param registry      the registry to publish to
+   * @param treeIdBuckets the number of the {@code tree} tag values; or 0 to not tag by tree
+   */
+  public MicrometerTreeMetrics(MeterRegistry registry, int treeIdBuckets) {
+    if (treeIdBuckets < 0) {
+      throw new IllegalArgumentException(String.format("Negative treeIdBuckets: %d", treeIdBuckets));
+    }
+    this.registry = registry;
+    this.treeIdBuckets = treeIdBuckets;
+    this.timers = new MeterCache<>(tags -> Timer.builder(OPERATION)
+        .description("Time of the tree repository operations")
+        .tags(tags)
+        .register(registry));
+    this.results = new MeterCache<>(tags -> DistributionSummary.builder(RESULTS)
+        .description("Number of the nodes returned by the tree repository operations")
+        .baseUnit("nodes")
+        .tags(tags)
+        .register(registry));
+    this.shifted = new MeterCache<>(tags -> Counter.builder(SHIFTED)
+        .description("Rows renumbered by the tree mutations")
+        .baseUnit("rows")
+        .tags(tags)
+        .register(registry));
+    this.deleted = new MeterCache<>(tags -> Counter.builder(DELETED)
+        .description("Rows deleted by the tree mutations")
+        .baseUnit("rows")
+        .tags(tags)
+        .register(registry));
+  }
+
+  public MeterRegistry getRegistry() {
+    return registry;
+  }
+
+  @Override
+  public long start() {
+    return System.nanoTime();
+  }
+
+  @Override
+  public void record(String operation, Class<?> entityClass, long treeId, long start, int resultSize) {
+    timers.get(operation, entityClass, treeId).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    results.get(operation, entityClass, treeId).record(resultSize);
+  }
+
+  @Override
+  public void recordShifted(String operation, Class<?> entityClass, long treeId, int rows) {
+    shifted.get(operation, entityClass, treeId).increment(rows);
+  }
+
+  @Override
+  public void recordDeleted(String operation, Class<?> entityClass, long treeId, int rows) {
+    deleted.get(operation, entityClass, treeId).increment(rows);
+  }
+
+  /**
+   * @return the index of the {@code tree} tag of a tree; the last index stands for {@code none}
+   */
+  protected int bucket(long treeId) {
+    if (treeIdBuckets == 0) {
+      return 0;
+    }
+    if (treeId == TreeEntity.NO_TREE_ID) {
+      return treeIdBuckets;
+    }
+    return (int) Math.floorMod(treeId, (long) treeIdBuckets);
+  }
+
+  protected Tags tags(String operation, Class<?> entityClass, int bucket) {
+    Tags tags = Tags.of("operation", operation, "entity", entityClass.getSimpleName());
+    if (treeIdBuckets == 0) {
+      return tags;
+    }
+    return tags.and("tree", bucket == treeIdBuckets ? "none" : Integer.toString(bucket));
+  }
+
+  /**
+   * The meters of one name - by entity class, by operation, by bucket.
+   */
+  private class MeterCache<M> {
+    private final Function<Tags, M> factory;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, AtomicReferenceArray<M>>> meters =
+        new ConcurrentHashMap<>();
+
+    MeterCache(Function<Tags, M> factory) {
+      this.factory = factory;
+    }
+
+    M get(String operation, Class<?> entityClass, long treeId) {
+      // get before computeIfAbsent - the latter locks even when the key is present, on Java 8
+      ConcurrentMap<String, AtomicReferenceArray<M>> byOperation = meters.get(entityClass);
+      if (byOperation == null) {
+        byOperation = meters.computeIfAbsent(entityClass, c -> new ConcurrentHashMap<>());
+      }
+      AtomicReferenceArray<M> byBucket = byOperation.get(operation);
+      if (byBucket == null) {
+        byBucket = byOperation.computeIfAbsent(operation, o -> new AtomicReferenceArray<>(treeIdBuckets + 1));
+      }
+      int bucket = bucket(treeId);
+      M meter = byBucket.get(bucket);
+      if (meter == null) {
+        // the registry returns the already registered meter to a racing thread
+        meter = factory.apply(tags(operation, entityClass, bucket));
+        byBucket.set(bucket, meter);
+      }
+      return meter;
+    }
+  }
+}
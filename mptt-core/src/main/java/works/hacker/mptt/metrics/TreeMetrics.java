@@ -0,0 +1,87 @@
+package works.hacker.mptt.metrics;
+
+/**
+ * Receives the measurements of the operations of the tree repositories.
+ * <p>
+ * The repositories report to {@link #NOOP} unless a metrics instance is set - its {@link #start} does not
+ * read the clock and its methods are empty, thus inlined away by the JIT. To publish the measurements to
+ * a Micrometer registry:
+ * <pre><code>
+ * tagTreeRepo.setTreeMetrics(new MicrometerTreeMetrics(meterRegistry));
+ * </code></pre>
+ * Only the completed operations are recorded - an operation failing with an exception is not.
+ *
+ * @see MicrometerTreeMetrics
+ */
+public interface TreeMetrics {
+  /**
+   * Records nothing.
+   */
+  TreeMetrics NOOP = new TreeMetrics() {
+    @Override
+    public long start() {
+      return 0L;
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void record(String operation, Class<?> entityClass, long treeId, long start, int resultSize) {
+    }
+
+    @Override
+    public void recordShifted(String operation, Class<?> entityClass, long treeId, int rows) {
+    }
+
+    @Override
+    public void recordDeleted(String operation, Class<?> entityClass, long treeId, int rows) {
+    }
+  };
+
+  /**
+   * @return the start time of an operation, passed back to {@link #record}
+   */
+  long start();
+
+  /**
+   * @return false if the measurements are discarded - the repositories skip computing them
+   */
+  default boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * Records a completed operation.
+   *
+   * @param operation   the name of the repository method, e.g. {@code findSubTree}
+   * @param entityClass the class of the tree entity
+   * @param treeId      the identifier of the tree; or {@link works.hacker.mptt.TreeEntity#NO_TREE_ID} if
+   *                    the operation spans several trees
+   * @param start       the value returned by {@link #start} when the operation started
+   * @param resultSize  the number of the nodes returned - or added, for the mutations
+   */
+  void record(String operation, Class<?> entityClass, long treeId, long start, int resultSize);
+
+  /**
+   * Records the rows renumbered by a mutation - the nodes following the changed subtree.
+   *
+   * @param operation   the name of the repository method, e.g. {@code addChild}
+   * @param entityClass the class of the tree entity
+   * @param treeId      the identifier of the tree
+   * @param rows        the number of the renumbered rows
+   */
+  void recordShifted(String operation, Class<?> entityClass, long treeId, int rows);
+
+  /**
+   * Records the rows deleted by a mutation.
+   *
+   * @param operation   the name of the repository method, e.g. {@code removeChild}
+   * @param entityClass the class of the tree entity
+   * @param treeId      the identifier of the tree
+   * @param rows        the number of the deleted rows
+   */
+  void recordDeleted(String operation, Class<?> entityClass, long treeId, int rows);
+}
@@ -0,0 +1,111 @@
+package works.hacker.mptt.version;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * The modification version of a tree - a single row per tree, shared by all the application instances
+ * using the same database.
+ * <p>
+ * The row is bumped by the {@link TreeVersionTracker} in the same transaction as every mutation of the
+ * tree, thus a committed change of a tree is always visible as a committed higher version. The
+ * {@code modifiedAt} timestamp is taken from the database clock, thus it does not depend on the clocks
+ * of the application instances.
+ * <p>
+ * <b>NOTE:</b> The entity must be included in the packages scanned by the entity manager factory, along
+ * with the tree entities.
+ *
+ * @see TreeVersionPoller
+ */
+@Entity
+@IdClass(TreeVersion.Key.class)
+public class TreeVersion {
+  @Id
+  @Column(nullable = false)
+  private String entityName;
+
+  @Id
+  @Column(nullable = false)
+  private long treeId;
+
+  @Column(nullable = false)
+  private long version;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(nullable = false)
+  private Date modifiedAt;
+
+  @SuppressWarnings({"Unused"})
+  public TreeVersion() {
+  }
+
+  public TreeVersion(String entityName, long treeId, long version, Date modifiedAt) {
+    this.entityName = entityName;
+    this.treeId = treeId;
+    this.version = version;
+    this.modifiedAt = modifiedAt;
+  }
+
+  public String getEntityName() {
+    return entityName;
+  }
+
+  public long getTreeId() {
+    return treeId;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Date getModifiedAt() {
+    return modifiedAt;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s [treeId: %d | version: %d | modifiedAt: %tFT%<tT.%<tL]",
+        entityName, treeId, version, modifiedAt);
+  }
+
+  /**
+   * The primary key of the {@link TreeVersion} - the name of the tree entity and the {@code treeId}.
+   */
+  public static class Key implements Serializable {
+    private String entityName;
+    private long treeId;
+
+    @SuppressWarnings({"Unused"})
+    public Key() {
+    }
+
+    public Key(String entityName, long treeId) {
+      this.entityName = entityName;
+      this.treeId = treeId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return treeId == key.treeId && Objects.equals(entityName, key.entityName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(entityName, treeId);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package works.hacker.mptt.version;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Polls the {@link TreeVersion} rows changed since the last poll and notifies the listeners about the
+ * changed trees - e.g. to evict them from the local caches of this application instance:
+ * <pre><code>
+ * TreeVersionPoller poller = new TreeVersionPoller(entityManager, 5_000);
+ * poller.addListener((entityName, treeId) -&gt; cachedRepo.evict(treeId));
+ * poller.addListener((entityName, treeId) -&gt; ancestorChainCache.invalidateTree(treeId));
+ * scheduler.scheduleWithFixedDelay(poller::poll, 1, 1, TimeUnit.SECONDS);
+ * </code></pre>
+ * Each poll is a single query over the rows modified since the newest {@code modifiedAt} seen by the
+ * previous poll. As a transaction may commit well after its {@code modifiedAt} was taken, every poll
+ * re-reads an overlap window before that watermark; a tree re-read within the window is only reported
+ * again, if its version changed meanwhile.
+ * <p>
+ * The very first poll only records the watermark - the local caches start empty, thus there's nothing
+ * to invalidate yet.
+ */
+public class TreeVersionPoller {
+  private static final String FIND_LAST_MODIFIED =
+      "SELECT MAX(v.modifiedAt) FROM TreeVersion v";
+
+  private static final String FIND_MODIFIED_SINCE =
+      "SELECT v.entityName, v.treeId, v.version, v.modifiedAt FROM TreeVersion v" +
+          " WHERE v.modifiedAt > :since" +
+          " ORDER BY v.modifiedAt ASC";
+
+  /**
+   * Notified about every tree changed since the previous poll.
+   */
+  @FunctionalInterface
+  public interface Listener {
+    void treeChanged(String entityName, long treeId);
+  }
+
+  private final EntityManager entityManager;
+  private final long overlapMillis;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  private Date watermark;
+  private final Map<TreeVersion.Key, TreeVersion> seen = new HashMap<>();
+
+  /**
+   * @param entityManager the entity manager to query with; typically the shared, container-managed one
+   * @param overlapMillis how far back before the watermark each poll looks for late commits; should
+   *                      exceed the duration of the longest transaction changing a tree
+   */
+  public TreeVersionPoller(EntityManager entityManager, long overlapMillis) {
+    this.entityManager = entityManager;
+    this.overlapMillis = overlapMillis;
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Queries the trees changed since the previous poll and notifies the listeners.
+   *
+   * @return the number of changed trees the listeners were notified about
+   */
+  public synchronized int poll() {
+    if (watermark == null) {
+      Date lastModified = entityManager.createQuery(FIND_LAST_MODIFIED, Date.class).getSingleResult();
+      watermark = lastModified == null ? new Date(0) : lastModified;
+      return 0;
+    }
+
+    Date since = new Date(watermark.getTime() - overlapMillis);
+    List<Object[]> rows = entityManager.createQuery(FIND_MODIFIED_SINCE, Object[].class)
+        .setParameter("since", since)
+        .getResultList();
+
+    List<TreeVersion> changed = new ArrayList<>();
+    for (Object[] row : rows) {
+      TreeVersion version = new TreeVersion((String) row[0], (Long) row[1], (Long) row[2], (Date) row[3]);
+      TreeVersion.Key key = new TreeVersion.Key(version.getEntityName(), version.getTreeId());
+      TreeVersion previous = seen.put(key, version);
+      if (previous == null || previous.getVersion() < version.getVersion()) {
+        changed.add(version);
+      }
+      if (version.getModifiedAt().after(watermark)) {
+        watermark = version.getModifiedAt();
+      }
+    }
+    // the versions older than the next overlap window are not read again
+    Date nextSince = new Date(watermark.getTime() - overlapMillis);
+    seen.values().removeIf(version -> !version.getModifiedAt().after(nextSince));
+
+    changed.forEach(version -> listeners.forEach(
+        listener -> listener.treeChanged(version.getEntityName(), version.getTreeId())));
+    return changed.size();
+  }
+}
@@ -0,0 +1,101 @@
+package works.hacker.mptt.version;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Bumps the {@link TreeVersion} of a tree in the transaction of the mutation of the tree.
+ * <p>
+ * The repositories call the tracker on every mutation, once set:
+ * <pre><code>
+ * tagTreeRepo.setTreeVersionTracker(new TreeVersionTracker());
+ * </code></pre>
+ * A bump is a single {@code UPDATE} statement. The row of a tree is inserted by {@link #start}, in the
+ * transaction starting the tree - no other transaction sees the tree before, thus the insert never
+ * conflicts. The row of a tree is locked by the {@code UPDATE} until the transaction completes -
+ * concurrent mutations of the same tree are serialized, while the mutations of different trees do not
+ * contend.
+ * <p>
+ * The trees started without a tracker get their row on their first change. The first changers of such
+ * a tree lock its root first - only one of them inserts the row, the others wait and update it, instead
+ * of failing on a duplicate key.
+ */
+public class TreeVersionTracker {
+  private static final String BUMP =
+      "UPDATE TreeVersion v" +
+          " SET v.version = v.version + 1, v.modifiedAt = CURRENT_TIMESTAMP" +
+          " WHERE v.entityName = :entityName AND v.treeId = :treeId";
+
+  private static final String LOCK_TREE_ROOT =
+      "SELECT node FROM %s node" +
+          " WHERE node.treeId = :treeId AND node.depth = 0";
+
+  private static final String FIND_VERSION =
+      "SELECT v.version FROM TreeVersion v" +
+          " WHERE v.entityName = :entityName AND v.treeId = :treeId";
+
+  /**
+   * Increments the version of a tree; must be called within the transaction of the mutation.
+   *
+   * @param entityManager the entity manager of the repository
+   * @param entityClass   the class of the tree entity
+   * @param treeId        the identifier of the changed tree
+   */
+  public void bump(EntityManager entityManager, Class<?> entityClass, long treeId) {
+    String entityName = entityClass.getSimpleName();
+    if (update(entityManager, entityName, treeId) == 0) {
+      // first change of a tree started without a tracker - serialized by the lock of the tree root
+      entityManager.createQuery(String.format(LOCK_TREE_ROOT, entityName), entityClass)
+          .setParameter("treeId", treeId)
+          .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+          .getResultList();
+      if (update(entityManager, entityName, treeId) == 0) {
+        insert(entityManager, entityName, treeId);
+      }
+    }
+  }
+
+  /**
+   * Inserts the version row of a new tree, at version 1; must be called within the transaction starting
+   * the tree.
+   *
+   * @param entityManager the entity manager of the repository
+   * @param entityClass   the class of the tree entity
+   * @param treeId        the identifier of the started tree
+   */
+  public void start(EntityManager entityManager, Class<?> entityClass, long treeId) {
+    insert(entityManager, entityClass.getSimpleName(), treeId);
+  }
+
+  /**
+   * @param entityManager the entity manager to query with
+   * @param entityClass   the class of the tree entity
+   * @param treeId        the identifier of the tree
+   * @return the current version of the tree; or empty optional if the tree was never changed with a
+   * tracker set
+   */
+  public Optional<Long> findVersion(EntityManager entityManager, Class<?> entityClass, long treeId) {
+    return entityManager.createQuery(FIND_VERSION, Long.class)
+        .setParameter("entityName", entityClass.getSimpleName())
+        .setParameter("treeId", treeId)
+        .getResultList().stream().findFirst();
+  }
+
+  private void insert(EntityManager entityManager, String entityName, long treeId) {
+    // inserted at version 0, and bumped to stamp it with the database clock
+    TreeVersion version = new TreeVersion(entityName, treeId, 0, new Date());
+    entityManager.persist(version);
+    entityManager.flush();
+    entityManager.detach(version);
+    update(entityManager, entityName, treeId);
+  }
+
+  private int update(EntityManager entityManager, String entityName, long treeId) {
+    return entityManager.createQuery(BUMP)
+        .setParameter("entityName", entityName)
+        .setParameter("treeId", treeId)
+        .executeUpdate();
+  }
+}
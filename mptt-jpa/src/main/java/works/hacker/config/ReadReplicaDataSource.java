@@ -0,0 +1,93 @@
+package works.hacker.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes the read-only transactions to a read replica and everything else to the primary database.
+ * <p>
+ * The read operations of the repositories run in read-only transactions of their own - see
+ * {@link works.hacker.mptt.TreeReadOnly} - thus they are served by the replica. The mutations, and
+ * the reads within a read-write transaction (read-your-writes), are served by the primary.
+ * <p>
+ * The connection is fetched lazily - on the first statement, not when the transaction begins - as only
+ * then it is known, whether the transaction is read-only.
+ * <p>
+ * <b>NOTE:</b> The replica lags behind the primary. A tree read right after it was changed by another
+ * transaction may still be the old one - read it within a read-write transaction, if it must be the
+ * latest.
+ */
+public class ReadReplicaDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+  enum Route {
+    PRIMARY,
+    REPLICA
+  }
+
+  private final DataSource primary;
+  private final DataSource replica;
+
+  /**
+   * @param primary the data source of the primary database
+   * @param replica the data source of the read replica
+   */
+  public ReadReplicaDataSource(DataSource primary, DataSource replica) {
+    this.primary = primary;
+    this.replica = replica;
+
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(Route.PRIMARY, primary);
+    targets.put(Route.REPLICA, replica);
+    AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+      @Override
+      protected Object determineCurrentLookupKey() {
+        return currentRoute();
+      }
+    };
+    routing.setTargetDataSources(targets);
+    routing.setDefaultTargetDataSource(primary);
+    routing.afterPropertiesSet();
+
+    setTargetDataSource(routing);
+    afterPropertiesSet();
+  }
+
+  static Route currentRoute() {
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public DataSource getReplica() {
+    return replica;
+  }
+
+  /**
+   * Closes the data sources of both the primary and the replica, if they are closeable - e.g. pools.
+   */
+  @Override
+  public void close() {
+    try {
+      close(primary);
+    } finally {
+      close(replica);
+    }
+  }
+
+  private static void close(DataSource dataSource) {
+    if (dataSource instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) dataSource).close();
+      } catch (Exception e) {
+        throw new IllegalStateException("Failed to close the data source", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package works.hacker.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Properties;
+
+@Configuration
+@EnableJpaRepositories(basePackages = { "works.hacker.repo.classic", "works.hacker.repo.dyadic"})
+@PropertySource("application.properties")
+@EnableTransactionManagement
+public class TreesJpaConfig {
+  @Autowired
+  private Environment env;
+
+  /**
+   * The pooled data source - HikariCP, sized by the {@code spring.datasource.hikari.*} properties.
+   * <p>
+   * Statement caching is left to the JDBC driver: every entry of
+   * {@code spring.datasource.hikari.data-source-properties.*} is passed on to it as is - e.g.
+   * {@code cachePrepStmts} and {@code prepStmtCacheSize} of MySQL; H2 caches the prepared statements of
+   * each connection on its own.
+   * <p>
+   * If {@code tree.datasource.replica.url} is set, the read-only transactions are routed to a second,
+   * read-only pool of the same size on that URL - see {@link ReadReplicaDataSource}. The credentials of
+   * the replica default to the ones of the primary.
+   */
+  @Bean(destroyMethod = "close")
+  public DataSource dataSource() {
+    final String poolName = env.getProperty("spring.datasource.hikari.pool-name", "trees");
+    final String username = env.getProperty("spring.datasource.username");
+    final String password = env.getProperty("spring.datasource.password");
+    final HikariDataSource primary = hikariDataSource(
+        poolName, env.getProperty("spring.datasource.url"), username, password, false);
+
+    final String replicaUrl = env.getProperty("tree.datasource.replica.url");
+    if (replicaUrl == null) {
+      return primary;
+    }
+    final HikariDataSource replica = hikariDataSource(poolName + "-replica", replicaUrl,
+        env.getProperty("tree.datasource.replica.username", username),
+        env.getProperty("tree.datasource.replica.password", password), true);
+    return new ReadReplicaDataSource(primary, replica);
+  }
+
+  private HikariDataSource hikariDataSource(String poolName, String url, String username, String password,
+      boolean readOnly) {
+    final HikariConfig config = new HikariConfig();
+    // @formatter:off
+    config.setPoolName(poolName);
+    config.setDriverClassName(env.getProperty("spring.datasource.driverClassName"));
+    config.setJdbcUrl(url);
+    config.setUsername(username);
+    config.setPassword(password);
+    config.setReadOnly(readOnly);
+    config.setMaximumPoolSize(env.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+    config.setMinimumIdle(env.getProperty("spring.datasource.hikari.minimum-idle", Integer.class, config.getMaximumPoolSize()));
+    config.setConnectionTimeout(env.getProperty("spring.datasource.hikari.connection-timeout", Long.class, 30_000L));
+    config.setIdleTimeout(env.getProperty("spring.datasource.hikari.idle-timeout", Long.class, 600_000L));
+    config.setMaxLifetime(env.getProperty("spring.datasource.hikari.max-lifetime", Long.class, 1_800_000L));
+    // @formatter:on
+    Binder.get(env)
+        .bind("spring.datasource.hikari.data-source-properties", Bindable.mapOf(String.class, String.class))
+        .ifBound(properties -> properties.forEach(config::addDataSourceProperty));
+    return new HikariDataSource(config);
+  }
+
+  @Bean
+  public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+    final LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
+    em.setDataSource(dataSource());
+    em.setPackagesToScan(new String[]{
+        "works.hacker.model.classic", "works.hacker.model.dyadic", "works.hacker.mptt.version"});
+    em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+    em.setJpaProperties(additionalProperties());
+    return em;
+  }
+
+  @Bean
+  JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+    JpaTransactionManager transactionManager = new JpaTransactionManager();
+    transactionManager.setEntityManagerFactory(entityManagerFactory);
+    return transactionManager;
+  }
+
+  final Properties additionalProperties() {
+    final Properties hibernateProperties = new Properties();
+    // @formatter:off
+    hibernateProperties.setProperty("hibernate.hbm2ddl.auto", env.getProperty("spring.jpa.generate-ddl"));
+    hibernateProperties.setProperty("hibernate.dialect", env.getProperty("spring.jpa.database-platform"));
+    hibernateProperties.setProperty("hibernate.show_sql", env.getProperty("spring.jpa.show-sql"));
+    hibernateProperties.setProperty("hibernate.format_sql", env.getProperty("spring.jpa.properties.hibernate.format_sql"));
+    // @formatter:on
+    hibernateProperties.putAll(batchProperties());
+    if (env.getProperty("spring.jpa.properties.hibernate.cache.use_second_level_cache", Boolean.class, false)) {
+      hibernateProperties.putAll(cacheProperties());
+    } else {
+      // explicitly - Hibernate enables the second-level cache by default
+      hibernateProperties.setProperty("hibernate.cache.use_second_level_cache", "false");
+      hibernateProperties.setProperty("hibernate.cache.use_query_cache", "false");
+    }
+    return hibernateProperties;
+  }
+
+  /**
+   * JDBC batching of the statements flushed by Hibernate - the managed nodes updated when a tree is
+   * renumbered, and the nodes removed, are sent in batches of {@code hibernate.jdbc.batch_size} rather
+   * than row by row. The inserts are not: the ids of the tree entities are generated by an identity
+   * column, thus each node is inserted on its own, as it is persisted.
+   * <p>
+   * The repositories renumber a tree by shifting the {@code lft} / {@code rgt} of the managed nodes - an
+   * {@code UPDATE} per shifted node on flush, not a single bulk statement. Ordering the updates
+   * ({@code hibernate.order_updates}) groups those statements into as few batches as possible, the same
+   * as ordering the inserts, and {@code hibernate.jdbc.batch_versioned_data} keeps the updates batched
+   * also for the tree entities mapped with a {@code @Version}.
+   */
+  final Properties batchProperties() {
+    final Properties batchProperties = new Properties();
+    // @formatter:off
+    batchProperties.setProperty("hibernate.jdbc.batch_size", env.getProperty("spring.jpa.properties.hibernate.jdbc.batch_size", "50"));
+    batchProperties.setProperty("hibernate.order_inserts", env.getProperty("spring.jpa.properties.hibernate.order_inserts", "true"));
+    batchProperties.setProperty("hibernate.order_updates", env.getProperty("spring.jpa.properties.hibernate.order_updates", "true"));
+    batchProperties.setProperty("hibernate.jdbc.batch_versioned_data", env.getProperty("spring.jpa.properties.hibernate.jdbc.batch_versioned_data", "true"));
+    // @formatter:on
+    return batchProperties;
+  }
+
+  /**
+   * The second-level and query cache of the tree entities - JCache, configured by {@code ehcache.xml}.
+   * <p>
+   * The cache regions of the tree queries are created on demand from the default template of the
+   * configuration.
+   *
+   * @see works.hacker.mptt.TreeQueryCache
+   */
+  final Properties cacheProperties() {
+    final Properties cacheProperties = new Properties();
+    // @formatter:off
+    cacheProperties.setProperty("hibernate.cache.use_second_level_cache", "true");
+    cacheProperties.setProperty("hibernate.cache.use_query_cache", env.getProperty("spring.jpa.properties.hibernate.cache.use_query_cache", "false"));
+    cacheProperties.setProperty("hibernate.cache.region.factory_class", "jcache");
+    cacheProperties.setProperty("hibernate.javax.cache.provider", env.getProperty("spring.jpa.properties.hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider"));
+    cacheProperties.setProperty("hibernate.javax.cache.uri", cacheConfigUri(env.getProperty("spring.jpa.properties.hibernate.javax.cache.uri", "ehcache.xml")));
+    cacheProperties.setProperty("hibernate.javax.cache.missing_cache_strategy", "create");
+    // @formatter:on
+    return cacheProperties;
+  }
+
+  private static String cacheConfigUri(String location) {
+    if (location.contains(":")) {
+      return location;
+    }
+    try {
+      return new ClassPathResource(location).getURL().toExternalForm();
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Cache configuration not found: %s", location), e);
+    }
+  }
+}
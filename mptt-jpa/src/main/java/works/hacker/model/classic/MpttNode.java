@@ -1,19 +1,30 @@
 package works.hacker.model.classic;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import works.hacker.mptt.TreeEntity;
 import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeSchema;
 import works.hacker.mptt.classic.MpttEntity;
 import works.hacker.repo.classic.MpttNodeRepository;
 import works.hacker.repo.classic.MpttNodeRepositoryCustom;
 import works.hacker.repo.classic.MpttNodeRepositoryImpl;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  * Demo usage of the {@link MpttEntity}.
  * <p>
  * Also used in the unit / integrations tests, as the {@link MpttEntity} is annotated
  * with {@link javax.persistence.MappedSuperclass} and can not be used standalone.
+ * <p>
+ * The nodes are cached in Hibernate's second-level cache - in the region named after the entity class,
+ * as configured in {@code ehcache.xml}.
+ * <p>
+ * The table is indexed by the recommended indexes of {@link TreeSchema}.
  *
  * @see MpttNodeRepositoryCustom
  * @see MpttNodeRepositoryImpl
@@ -23,6 +34,12 @@ import javax.persistence.Entity;
  * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+    @Index(name = "idx_mpttnode_tree_lft", columnList = TreeSchema.TREE_LFT),
+    @Index(name = "idx_mpttnode_tree_rgt", columnList = TreeSchema.TREE_RGT),
+    @Index(name = "idx_mpttnode_tree_depth_lft", columnList = TreeSchema.TREE_DEPTH_LFT)})
 public class MpttNode extends MpttEntity {
   @SuppressWarnings({"Unused"})
   public MpttNode() {
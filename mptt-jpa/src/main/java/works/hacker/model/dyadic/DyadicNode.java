@@ -1,20 +1,31 @@
 package works.hacker.model.dyadic;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import works.hacker.mptt.TreeEntity;
 import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeSchema;
 import works.hacker.mptt.dyadic.DyadicEntity;
 import works.hacker.repo.dyadic.DyadicNodeRepository;
 import works.hacker.repo.dyadic.DyadicNodeRepositoryCustom;
 import works.hacker.repo.dyadic.DyadicNodeRepositoryImpl;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
 
 /**
  * Demo usage of the {@link DyadicEntity}.
  * <p>
  * Also used in the unit / integrations tests, as the {@link DyadicEntity} is annotated
  * with {@link MappedSuperclass} and can not be used standalone.
+ * <p>
+ * The nodes are cached in Hibernate's second-level cache - in the region named after the entity class,
+ * as configured in {@code ehcache.xml}.
+ * <p>
+ * The table is indexed by the recommended indexes of {@link TreeSchema}.
  *
  * @see DyadicNodeRepositoryCustom
  * @see DyadicNodeRepositoryImpl
@@ -24,6 +35,12 @@ import javax.persistence.MappedSuperclass;
  * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+    @Index(name = "idx_dyadicnode_tree_lft", columnList = TreeSchema.TREE_LFT),
+    @Index(name = "idx_dyadicnode_tree_rgt", columnList = TreeSchema.TREE_RGT),
+    @Index(name = "idx_dyadicnode_tree_depth_lft", columnList = TreeSchema.TREE_DEPTH_LFT)})
 public class DyadicNode extends DyadicEntity {
   @SuppressWarnings({"Unused"})
   public DyadicNode() {
@@ -0,0 +1,461 @@
+package works.hacker.mptt;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+import works.hacker.mptt.id.TreeIdAllocator;
+import works.hacker.mptt.metrics.TreeMetrics;
+import works.hacker.mptt.version.TreeVersionTracker;
+
+import javax.persistence.NoResultException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Read-through caching decorator of a {@link TreeRepository}, answering the read operations from an
+ * in-memory {@link TreeSnapshot} per tree.
+ * <p>
+ * The first read of a tree loads the whole tree into a snapshot with two queries, in one read-only
+ * transaction; all the following reads of the tree are answered from the snapshot, until the tree is
+ * changed:
+ * <pre><code>
+ * CachingTreeRepository&lt;TagTree&gt; cachedRepo =
+ *     new CachingTreeRepository&lt;&gt;(tagTreeRepo, 100, transactionManager);
+ * List&lt;TagTree&gt; children = cachedRepo.findChildren(root);
+ * </code></pre>
+ * The mutator operations are delegated and evict the snapshot of the changed tree once the
+ * transaction completes; or right away, if there's no active transaction. Until then, the reads of the
+ * changed tree bypass the cache - thus a transaction changing a tree reads its own changes.
+ * <p>
+ * At most {@code maxTrees} snapshots are kept; when exceeded, the least recently used one is evicted.
+ * The hit, miss and eviction counters are exposed for monitoring.
+ * <p>
+ * The snapshot holds detached copies of the loaded entities - shallow copies of their fields, made
+ * before the loading transaction completes. They are not managed by any persistence context, thus
+ * neither a flush of the loading session changes them, nor a change of them is ever flushed. The same
+ * copies are returned to all the readers of the snapshot, thus should not be modified.
+ */
+@SuppressWarnings("rawtypes")
+public class CachingTreeRepository<T extends TreeEntity> implements TreeRepository<T> {
+  private final TreeRepository<T> delegate;
+  private final int maxTrees;
+  private final TransactionTemplate readOnlyTransaction;
+
+  private final Map<Long, TreeSnapshot<T>> snapshots;
+  private final Map<Long, AtomicInteger> pendingWrites = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param delegate           the repository to cache; the entity class must be set
+   * @param maxTrees           the maximum number of trees to keep in memory
+   * @param transactionManager the transaction manager of the delegate - loads each snapshot in one
+   *                           read-only transaction; joins the transaction of the caller, if any
+   */
+  public CachingTreeRepository(TreeRepository<T> delegate, int maxTrees,
+      PlatformTransactionManager transactionManager) {
+    if (maxTrees < 1) {
+      throw new IllegalArgumentException(String.format("maxTrees must be positive: %d", maxTrees));
+    }
+    this.delegate = delegate;
+    this.maxTrees = maxTrees;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.snapshots = new LinkedHashMap<Long, TreeSnapshot<T>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, TreeSnapshot<T>> eldest) {
+        if (size() > CachingTreeRepository.this.maxTrees) {
+          evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public void setEntityClass(Class<T> entityClass) {
+    delegate.setEntityClass(entityClass);
+  }
+
+  @Override
+  public void setAncestorChainCache(AncestorChainCache ancestorChainCache) {
+    delegate.setAncestorChainCache(ancestorChainCache);
+  }
+
+  @Override
+  public void setTreeVersionTracker(TreeVersionTracker treeVersionTracker) {
+    delegate.setTreeVersionTracker(treeVersionTracker);
+  }
+
+  @Override
+  public void setTreeIdAllocator(TreeIdAllocator treeIdAllocator) {
+    delegate.setTreeIdAllocator(treeIdAllocator);
+  }
+
+  @Override
+  public void setTreeMetrics(TreeMetrics treeMetrics) {
+    delegate.setTreeMetrics(treeMetrics);
+  }
+
+  @Override
+  public T createNode(String name)
+      throws IllegalAccessException, InstantiationException, NoSuchMethodException,
+      InvocationTargetException {
+    return delegate.createNode(name);
+  }
+
+  @Override
+  public List<T> createNodes(Stream<String> names) throws NoSuchMethodException, InvocationTargetException {
+    return delegate.createNodes(names);
+  }
+
+  @Override
+  public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    return delegate.startTree(node);
+  }
+
+  @Override
+  public T findTreeRoot(Long treeId) throws NoResultException {
+    TreeSnapshot<T> snapshot = getSnapshot(treeId);
+    return snapshot == null ? delegate.findTreeRoot(treeId) : snapshot.getRoot();
+  }
+
+  @Override
+  public List<Long> findLargestTreeIds(int limit) {
+    return delegate.findLargestTreeIds(limit);
+  }
+
+  @Override
+  public Optional<T> findByPath(Long treeId, List<String> names) {
+    TreeSnapshot<T> snapshot = getSnapshot(treeId);
+    if (snapshot == null) {
+      return delegate.findByPath(treeId, names);
+    }
+    int index = snapshot.findByPath(names);
+    return index < 0 ? Optional.empty() : Optional.of(snapshot.getNode(index));
+  }
+
+  @Override
+  public T ensurePath(Long treeId, List<String> names) throws NoResultException {
+    TreeSnapshot<T> snapshot = getSnapshot(treeId);
+    if (snapshot != null) {
+      int index = snapshot.findByPath(names);
+      if (index >= 0) {
+        return snapshot.getNode(index);
+      }
+    }
+    return write(treeId, () -> delegate.ensurePath(treeId, names));
+  }
+
+  @Override
+  public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    beginWrite(parent.getTreeId());
+    try {
+      delegate.addChild(parent, child);
+    } finally {
+      endWrite(parent.getTreeId());
+    }
+  }
+
+  @Override
+  public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    beginWrite(parent.getTreeId());
+    try {
+      return delegate.removeChild(parent, child);
+    } finally {
+      endWrite(parent.getTreeId());
+    }
+  }
+
+  @Override
+  public List<T> findChildren(T node) {
+    return read(node, TreeSnapshot::findChildren, delegate::findChildren);
+  }
+
+  @Override
+  public Map<T, List<T>> findChildrenOfAll(Collection<T> nodes) {
+    return readAll(nodes, TreeSnapshot::findChildren, delegate::findChildrenOfAll);
+  }
+
+  @Override
+  public List<T> findSubTree(T node) {
+    return read(node, TreeSnapshot::findSubTree, delegate::findSubTree);
+  }
+
+  @Override
+  public List<T> findSubTree(T node, long maxDepth) {
+    // validated up front - the same exception, whether the tree is cached or read through the delegate
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException(String.format("maxDepth must not be negative: %d", maxDepth));
+    }
+    return read(node, (snapshot, index) -> snapshot.findSubTree(index, maxDepth),
+        n -> delegate.findSubTree(n, maxDepth));
+  }
+
+  @Override
+  public List<T> findDescendantsAtDepth(T node, long depth) {
+    // validated up front - the same exception, whether the tree is cached or read through the delegate
+    if (depth < 1) {
+      throw new IllegalArgumentException(String.format("depth must be positive: %d", depth));
+    }
+    return read(node, (snapshot, index) -> snapshot.findDescendantsAtDepth(index, depth),
+        n -> delegate.findDescendantsAtDepth(n, depth));
+  }
+
+  @Override
+  public List<T> findLeaves(T node) {
+    return read(node, TreeSnapshot::findLeaves, delegate::findLeaves);
+  }
+
+  @Override
+  public List<T> findSiblings(T node) {
+    return read(node, TreeSnapshot::findSiblings, delegate::findSiblings);
+  }
+
+  @Override
+  public List<T> findAncestors(T node) {
+    return read(node, TreeSnapshot::findAncestors, delegate::findAncestors);
+  }
+
+  @Override
+  public Map<T, List<T>> findAncestorsOfAll(Collection<T> nodes) {
+    return readAll(nodes, TreeSnapshot::findAncestors, delegate::findAncestorsOfAll);
+  }
+
+  @Override
+  public Optional<T> findParent(T node) {
+    return read(node,
+        (snapshot, index) -> snapshot.getParent(index) < 0
+            ? Optional.<T>empty()
+            : Optional.of(snapshot.getNode(snapshot.getParent(index))),
+        delegate::findParent);
+  }
+
+  /**
+   * Evicts the snapshot of a tree; the next read of the tree loads it again.
+   *
+   * @param treeId the identifier of the tree
+   */
+  public void evict(long treeId) {
+    generation.incrementAndGet();
+    synchronized (snapshots) {
+      snapshots.remove(treeId);
+    }
+  }
+
+  /**
+   * Evicts the snapshots of all the trees.
+   */
+  public void evictAll() {
+    generation.incrementAndGet();
+    synchronized (snapshots) {
+      snapshots.clear();
+    }
+  }
+
+  /**
+   * @return the decorated repository
+   */
+  public TreeRepository<T> getDelegate() {
+    return delegate;
+  }
+
+  public int getMaxTrees() {
+    return maxTrees;
+  }
+
+  /**
+   * @return the number of trees currently kept in memory
+   */
+  public int size() {
+    synchronized (snapshots) {
+      return snapshots.size();
+    }
+  }
+
+  /**
+   * @return the number of reads answered from a snapshot
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of reads, which had to load the tree, or were delegated because the tree is
+   * being changed
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of snapshots evicted to keep at most {@code maxTrees} trees in memory
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  protected <R> R read(T node, BiFunction<TreeSnapshot<T>, Integer, R> cached,
+      Function<T, R> uncached) {
+    TreeSnapshot<T> snapshot = getSnapshot(node.getTreeId());
+    int index = snapshot == null ? -1 : snapshot.indexOf(node);
+    return index < 0 ? uncached.apply(node) : cached.apply(snapshot, index);
+  }
+
+  /**
+   * Answers the nodes found in a snapshot from the snapshot, and the rest - the nodes of the trees being
+   * changed, or not found - with a single batched call of the delegate.
+   */
+  protected Map<T, List<T>> readAll(Collection<T> nodes, BiFunction<TreeSnapshot<T>, Integer, List<T>> cached,
+      Function<Collection<T>, Map<T, List<T>>> uncached) {
+    Map<T, List<T>> result = new LinkedHashMap<>();
+    Map<Long, TreeSnapshot<T>> snapshotsOfTrees = new HashMap<>();
+    List<T> uncachedNodes = new ArrayList<>();
+    for (T node : nodes) {
+      long treeId = node.getTreeId();
+      if (!snapshotsOfTrees.containsKey(treeId)) {
+        snapshotsOfTrees.put(treeId, getSnapshot(treeId));
+      }
+      TreeSnapshot<T> snapshot = snapshotsOfTrees.get(treeId);
+      int index = snapshot == null ? -1 : snapshot.indexOf(node);
+      if (index < 0) {
+        // keeps the position of the node in the result, until the delegate answers it
+        result.put(node, null);
+        uncachedNodes.add(node);
+      } else {
+        result.put(node, cached.apply(snapshot, index));
+      }
+    }
+    if (!uncachedNodes.isEmpty()) {
+      result.putAll(uncached.apply(uncachedNodes));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the snapshot of a tree, loading it on a miss.
+   *
+   * @param treeId the identifier of the tree
+   * @return the snapshot of the tree; or null if the tree is being changed, or there's no such tree
+   */
+  protected TreeSnapshot<T> getSnapshot(long treeId) {
+    if (isBeingWritten(treeId)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    TreeSnapshot<T> snapshot;
+    synchronized (snapshots) {
+      snapshot = snapshots.get(treeId);
+    }
+    if (snapshot != null) {
+      hits.incrementAndGet();
+      return snapshot;
+    }
+
+    misses.incrementAndGet();
+    long loadedAt = generation.get();
+    snapshot = load(treeId);
+    if (snapshot == null) {
+      return null;
+    }
+    synchronized (snapshots) {
+      if (generation.get() == loadedAt && !isBeingWritten(treeId)) {
+        snapshots.put(treeId, snapshot);
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Loads the snapshot of a tree - the root and the sub-tree of the root, read in the same read-only
+   * transaction, and copied before it completes.
+   *
+   * @param treeId the identifier of the tree
+   * @return the snapshot of the tree; or null if there's no such tree
+   */
+  protected TreeSnapshot<T> load(long treeId) {
+    return readOnlyTransaction.execute(status -> {
+      T root;
+      try {
+        root = delegate.findTreeRoot(treeId);
+      } catch (NoResultException e) {
+        if (status.isNewTransaction()) {
+          status.setRollbackOnly();
+        }
+        return null;
+      }
+      List<T> nodes = delegate.findSubTree(root);
+      List<T> copies = new ArrayList<>(nodes.size());
+      nodes.forEach(node -> copies.add(detachedCopy(node)));
+      return new TreeSnapshot<>(copies);
+    });
+  }
+
+  /**
+   * @return a new instance of the class of the entity, with all the fields of the entity copied
+   */
+  @SuppressWarnings("unchecked")
+  protected T detachedCopy(T node) {
+    T entity = (T) Hibernate.unproxy(node);
+    T copy = (T) BeanUtils.instantiateClass(entity.getClass());
+    ReflectionUtils.shallowCopyFieldState(entity, copy);
+    return copy;
+  }
+
+  protected <R> R write(long treeId, Supplier<R> mutation) {
+    beginWrite(treeId);
+    try {
+      return mutation.get();
+    } finally {
+      endWrite(treeId);
+    }
+  }
+
+  protected void beginWrite(long treeId) {
+    pendingWrites.computeIfAbsent(treeId, id -> new AtomicInteger()).incrementAndGet();
+    evict(treeId);
+  }
+
+  protected void endWrite(long treeId) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(int status) {
+          completeWrite(treeId);
+        }
+      });
+    } else {
+      completeWrite(treeId);
+    }
+  }
+
+  private void completeWrite(long treeId) {
+    pendingWrites.computeIfPresent(treeId, (id, count) -> count.decrementAndGet() == 0 ? null : count);
+    evict(treeId);
+  }
+
+  private boolean isBeingWritten(long treeId) {
+    return pendingWrites.containsKey(treeId);
+  }
+}
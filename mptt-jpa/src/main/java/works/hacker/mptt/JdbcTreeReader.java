@@ -0,0 +1,88 @@
+package works.hacker.mptt;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import works.hacker.mptt.classic.MpttJdbcTreeReader;
+import works.hacker.mptt.dyadic.DyadicJdbcTreeReader;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Optional read-only fast path for the hot read operations of a {@link TreeRepository}.
+ * <p>
+ * Runs plain prepared-statement SQL against the table of the tree entity and maps the rows by column
+ * index straight to {@link TreeRow}s - bypassing the JPA entity pipeline (persistence context,
+ * dirty-checking snapshots, entity instantiation). The results are the same as the results of the
+ * corresponding {@link TreeRepository} methods.
+ * <p>
+ * The SQL is built once per reader from the {@link TreeTableMapping}. Connections are obtained through
+ * Spring, thus the reader takes part in the current transaction - if any - and sees the flushed changes
+ * of that transaction. Caching of the prepared statements is left to the connection pool / the driver.
+ *
+ * @see MpttJdbcTreeReader
+ * @see DyadicJdbcTreeReader
+ */
+public abstract class JdbcTreeReader {
+  protected final JdbcTemplate jdbcTemplate;
+  protected final TreeTableMapping mapping;
+
+  protected final RowMapper<TreeRow> rowMapper = (rs, rowNum) -> new TreeRow(
+      rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getLong(4),
+      (Number) rs.getObject(5), (Number) rs.getObject(6));
+
+  protected JdbcTreeReader(DataSource dataSource, TreeTableMapping mapping) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.mapping = mapping;
+  }
+
+  protected abstract String getFindTreeRootSql();
+
+  protected abstract String getFindChildrenSql();
+
+  protected abstract String getFindSubTreeSql();
+
+  protected abstract String getFindAncestorsSql();
+
+  protected abstract String getFindParentSql();
+
+  /**
+   * @see TreeRepository#findTreeRoot
+   */
+  public Optional<TreeRow> findTreeRoot(long treeId) {
+    return jdbcTemplate.query(getFindTreeRootSql(), rowMapper, treeId).stream().findFirst();
+  }
+
+  /**
+   * @see TreeRepository#findChildren
+   */
+  public List<TreeRow> findChildren(TreeRow node) {
+    return jdbcTemplate.query(getFindChildrenSql(), rowMapper,
+        node.getTreeId(), node.getLft(), node.getRgt(), node.getDepth() + 1);
+  }
+
+  /**
+   * @see TreeRepository#findSubTree(TreeEntity)
+   */
+  public List<TreeRow> findSubTree(TreeRow node) {
+    return jdbcTemplate.query(getFindSubTreeSql(), rowMapper,
+        node.getTreeId(), node.getLft(), node.getRgt());
+  }
+
+  /**
+   * @see TreeRepository#findAncestors
+   */
+  public List<TreeRow> findAncestors(TreeRow node) {
+    return jdbcTemplate.query(getFindAncestorsSql(), rowMapper,
+        node.getTreeId(), node.getLft(), node.getRgt(), node.getDepth());
+  }
+
+  /**
+   * @see TreeRepository#findParent
+   */
+  public Optional<TreeRow> findParent(TreeRow node) {
+    return jdbcTemplate.query(getFindParentSql(), rowMapper,
+        node.getTreeId(), node.getLft(), node.getRgt(), node.getDepth() - 1).stream().findFirst();
+  }
+}
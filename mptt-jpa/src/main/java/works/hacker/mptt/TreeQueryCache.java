@@ -0,0 +1,68 @@
+package works.hacker.mptt;
+
+import org.hibernate.SessionFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+/**
+ * Caches the results of the tree queries in Hibernate's query cache - in a query cache region per tree
+ * entity, named after the entity class:
+ * <pre>
+ * works.hacker.model.classic.MpttNode.queries
+ * works.hacker.model.dyadic.DyadicNode.queries
+ * </pre>
+ * <b>NOTE:</b> Hibernate invalidates the cached query results per table - a change of any tree makes the
+ * cached queries of all the trees of the entity stale, thus the regions are not split any further. A
+ * mutation evicts the region of its entity, which drops the stale results from memory right away,
+ * instead of keeping them until they are looked up again.
+ * <p>
+ * The hints are ignored, unless the query cache is enabled with
+ * {@code hibernate.cache.use_query_cache=true}.
+ */
+public final class TreeQueryCache {
+  public static final String CACHEABLE_HINT = "org.hibernate.cacheable";
+  public static final String CACHE_REGION_HINT = "org.hibernate.cacheRegion";
+
+  private static final ClassValue<String> REGIONS = new ClassValue<String>() {
+    @Override
+    protected String computeValue(Class<?> entityClass) {
+      return entityClass.getName() + ".queries";
+    }
+  };
+
+  private TreeQueryCache() {
+  }
+
+  /**
+   * @param entityClass the class of the tree entity
+   * @return the name of the query cache region holding the queries of the entity
+   */
+  public static String region(Class<?> entityClass) {
+    return REGIONS.get(entityClass);
+  }
+
+  /**
+   * Marks a query of a tree cacheable in the region of its entity.
+   *
+   * @param query       the query reading a single tree
+   * @param entityClass the class of the tree entity
+   * @return the same query
+   */
+  public static <Q extends Query> Q cacheable(Q query, Class<?> entityClass) {
+    query.setHint(CACHEABLE_HINT, true);
+    query.setHint(CACHE_REGION_HINT, region(entityClass));
+    return query;
+  }
+
+  /**
+   * Evicts the cached query results of an entity - to be called by every mutation of its trees.
+   *
+   * @param entityManager the entity manager of the repository
+   * @param entityClass   the class of the tree entity
+   */
+  public static void evict(EntityManager entityManager, Class<?> entityClass) {
+    entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache()
+        .evictQueryRegion(region(entityClass));
+  }
+}
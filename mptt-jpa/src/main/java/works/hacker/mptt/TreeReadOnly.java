@@ -0,0 +1,27 @@
+package works.hacker.mptt;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the read operations of the repositories - run in a read-only transaction, unless called within
+ * a transaction already.
+ * <p>
+ * Called on their own, the reads are thus routed to the read replica, if one is configured - see
+ * {@link works.hacker.config.ReadReplicaDataSource}. Called within a read-write transaction, they join
+ * it and read from the primary, thus they see the writes of the transaction.
+ * <p>
+ * Overrides the {@link javax.transaction.Transactional} annotation of the repository implementations,
+ * which can not express read-only transactions.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface TreeReadOnly {
+}
@@ -0,0 +1,227 @@
+package works.hacker.mptt;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Warms up a tree repository after start-up - before the first requests hit cold caches and cold query
+ * plans.
+ * <p>
+ * The warm-up does two things:
+ * <ul>
+ * <li>loads each of the given trees - through the given repository, thus into whatever cache is
+ * configured: the snapshots of a {@link CachingTreeRepository}, or Hibernate's second-level and query
+ * cache</li>
+ * <li>runs every read query of the repository once - the query plans and the prepared statements are
+ * per query, not per tree, thus a single tree is enough to prime them</li>
+ * </ul>
+ * The trees are loaded in parallel on a bounded number of threads; the returned future completes with
+ * the {@link Report} once all the trees are loaded, thus the start-up does not need to wait for it:
+ * <pre><code>
+ * TreeWarmUp&lt;TagTree&gt; warmUp = new TreeWarmUp&lt;&gt;(cachedTagTreeRepo, 4);
+ * warmUp.warmUpLargest(20).thenAccept(report -&gt; LOG.info("{}", report));
+ * </code></pre>
+ */
+@SuppressWarnings("rawtypes")
+public class TreeWarmUp<T extends TreeEntity> {
+  private static final AtomicInteger THREADS = new AtomicInteger();
+
+  private final TreeRepository<T> repository;
+  private final int parallelism;
+  private final Executor executor;
+
+  /**
+   * @param repository  the repository to warm up; the entity class must be set
+   * @param parallelism the maximum number of trees loaded at the same time
+   */
+  public TreeWarmUp(TreeRepository<T> repository, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(String.format("parallelism must be positive: %d", parallelism));
+    }
+    this.repository = repository;
+    this.parallelism = parallelism;
+    this.executor = null;
+  }
+
+  /**
+   * @param repository the repository to warm up; the entity class must be set
+   * @param executor   the executor to load the trees with - e.g. a bounded pool shared with other
+   *                   start-up tasks
+   */
+  public TreeWarmUp(TreeRepository<T> repository, Executor executor) {
+    this.repository = repository;
+    this.parallelism = 0;
+    this.executor = executor;
+  }
+
+  /**
+   * Warms up the largest trees.
+   *
+   * @param limit the number of trees to load
+   * @return the future report of the warm-up
+   * @see TreeRepository#findLargestTreeIds
+   */
+  public CompletableFuture<Report> warmUpLargest(int limit) {
+    return warmUp(repository.findLargestTreeIds(limit));
+  }
+
+  /**
+   * Warms up the given trees.
+   *
+   * @param treeIds the identifiers of the trees to load
+   * @return the future report of the warm-up; completes once all the trees were loaded or failed
+   */
+  public CompletableFuture<Report> warmUp(Collection<Long> treeIds) {
+    List<Long> trees = new ArrayList<>(treeIds);
+    if (trees.isEmpty()) {
+      return CompletableFuture.completedFuture(new Report(trees, 0, Collections.emptyMap(), 0, 0));
+    }
+    long start = System.nanoTime();
+    ExecutorService ownExecutor = executor == null ? newExecutor(Math.min(parallelism, trees.size())) : null;
+
+    AtomicBoolean primed = new AtomicBoolean();
+    AtomicLong nodes = new AtomicLong();
+    AtomicLong primeNanos = new AtomicLong();
+    Map<Long, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+    CompletableFuture[] loads = new CompletableFuture[trees.size()];
+    for (int i = 0; i < trees.size(); i++) {
+      Long treeId = trees.get(i);
+      loads[i] = CompletableFuture.runAsync(() -> {
+        T root = repository.findTreeRoot(treeId);
+        List<T> tree = repository.findSubTree(root);
+        nodes.addAndGet(tree.size());
+        if (primed.compareAndSet(false, true)) {
+          long primeStart = System.nanoTime();
+          primeQueries(tree);
+          primeNanos.set(System.nanoTime() - primeStart);
+        }
+      }, ownExecutor == null ? executor : ownExecutor).exceptionally(e -> {
+        failures.put(treeId, e.getCause() == null ? e : e.getCause());
+        return null;
+      });
+    }
+    return CompletableFuture.allOf(loads)
+        .whenComplete((result, e) -> {
+          if (ownExecutor != null) {
+            ownExecutor.shutdown();
+          }
+        })
+        .thenApply(result -> new Report(
+            trees, nodes.get(), failures, primeNanos.get(), System.nanoTime() - start));
+  }
+
+  /**
+   * Runs every read query once; on the decorated repository, if it's a {@link CachingTreeRepository} -
+   * the snapshots would answer the reads without running the queries.
+   *
+   * @param tree the nodes of a loaded tree in preorder
+   */
+  protected void primeQueries(List<T> tree) {
+    TreeRepository<T> queries = repository instanceof CachingTreeRepository
+        ? ((CachingTreeRepository<T>) repository).getDelegate()
+        : repository;
+    T root = tree.get(0);
+    T leaf = tree.get(tree.size() - 1);
+    List<T> rootAndLeaf = Arrays.asList(root, leaf);
+
+    queries.findTreeRoot(root.getTreeId());
+    queries.findByPath(root.getTreeId(), Collections.singletonList(root.getName()));
+    queries.findChildren(root);
+    queries.findChildrenOfAll(rootAndLeaf);
+    queries.findSubTree(root);
+    queries.findSubTree(root, 1);
+    queries.findDescendantsAtDepth(root, 1);
+    queries.findLeaves(root);
+    queries.findSiblings(leaf);
+    queries.findAncestors(leaf);
+    queries.findAncestorsOfAll(rootAndLeaf);
+    queries.findParent(leaf);
+  }
+
+  private static ExecutorService newExecutor(int threads) {
+    return Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, String.format("tree-warm-up-%d", THREADS.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * The outcome of a warm-up.
+   */
+  public static class Report {
+    private final List<Long> treeIds;
+    private final long nodes;
+    private final Map<Long, Throwable> failures;
+    private final Duration primeDuration;
+    private final Duration duration;
+
+    Report(List<Long> treeIds, long nodes, Map<Long, Throwable> failures, long primeNanos,
+        long nanos) {
+      this.treeIds = Collections.unmodifiableList(treeIds);
+      this.nodes = nodes;
+      this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+      this.primeDuration = Duration.ofNanos(primeNanos);
+      this.duration = Duration.ofNanos(nanos);
+    }
+
+    /**
+     * @return the identifiers of all the trees to warm up - loaded or failed
+     */
+    public List<Long> getTreeIds() {
+      return treeIds;
+    }
+
+    /**
+     * @return the total number of nodes of the loaded trees
+     */
+    public long getNodes() {
+      return nodes;
+    }
+
+    /**
+     * @return the trees, which failed to load - e.g. because there's no such tree; with the cause
+     */
+    public Map<Long, Throwable> getFailures() {
+      return failures;
+    }
+
+    /**
+     * @return how long it took to run all the read queries once
+     */
+    public Duration getPrimeDuration() {
+      return primeDuration;
+    }
+
+    /**
+     * @return how long the whole warm-up took
+     */
+    public Duration getDuration() {
+      return duration;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Warmed up %d of %d trees (%d nodes) in %d ms; queries primed in %d ms%s",
+          treeIds.size() - failures.size(), treeIds.size(), nodes, duration.toMillis(),
+          primeDuration.toMillis(),
+          failures.isEmpty() ? "" : failures.keySet().stream()
+              .map(String::valueOf)
+              .collect(Collectors.joining(", ", "; failed: ", "")));
+    }
+  }
+}
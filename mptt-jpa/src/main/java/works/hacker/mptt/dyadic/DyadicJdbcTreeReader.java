@@ -0,0 +1,45 @@
+package works.hacker.mptt.dyadic;
+
+import works.hacker.mptt.JdbcTreeReader;
+import works.hacker.mptt.TreeTableMapping;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link JdbcTreeReader} for the trees of {@link DyadicEntity}s.
+ *
+ * @see DyadicRepositoryImpl
+ */
+public class DyadicJdbcTreeReader extends JdbcTreeReader {
+  private final DyadicSql sql;
+
+  public DyadicJdbcTreeReader(DataSource dataSource, TreeTableMapping mapping) {
+    super(dataSource, mapping);
+    sql = new DyadicSql(mapping);
+  }
+
+  @Override
+  protected String getFindTreeRootSql() {
+    return sql.findTreeRoot;
+  }
+
+  @Override
+  protected String getFindChildrenSql() {
+    return sql.findChildren;
+  }
+
+  @Override
+  protected String getFindSubTreeSql() {
+    return sql.findSubTree;
+  }
+
+  @Override
+  protected String getFindAncestorsSql() {
+    return sql.findAncestors;
+  }
+
+  @Override
+  protected String getFindParentSql() {
+    return sql.findParent;
+  }
+}
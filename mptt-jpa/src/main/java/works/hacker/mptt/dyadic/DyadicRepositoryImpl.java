@@ -0,0 +1,582 @@
+package works.hacker.mptt.dyadic;
+
+import works.hacker.mptt.AncestorChainCache;
+import works.hacker.mptt.NodeFactory;
+import works.hacker.mptt.TreeBatches;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeQueryCache;
+import works.hacker.mptt.TreeReadOnly;
+import works.hacker.mptt.id.TreeIdAllocator;
+import works.hacker.mptt.metrics.TreeMetrics;
+import works.hacker.mptt.version.TreeVersionTracker;
+
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.transaction.Transactional;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Transactional
+public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements DyadicRepository<T> {
+  @PersistenceContext
+  EntityManager entityManager;
+
+  protected Class<T> entityClass;
+
+  protected DyadicQueries queries;
+
+  protected NodeFactory<T> nodeFactory;
+
+  protected AncestorChainCache ancestorChainCache;
+
+  protected TreeVersionTracker treeVersionTracker;
+
+  protected TreeIdAllocator treeIdAllocator;
+
+  protected TreeMetrics treeMetrics = TreeMetrics.NOOP;
+
+  @Override
+  public void setEntityClass(Class<T> entityClass) {
+    this.entityClass = entityClass;
+    this.queries = DyadicQueries.of(entityClass);
+    this.nodeFactory = NodeFactory.of(entityClass);
+  }
+
+  @Override
+  public void setAncestorChainCache(AncestorChainCache ancestorChainCache) {
+    this.ancestorChainCache = ancestorChainCache;
+  }
+
+  @Override
+  public void setTreeVersionTracker(TreeVersionTracker treeVersionTracker) {
+    this.treeVersionTracker = treeVersionTracker;
+  }
+
+  @Override
+  public void setTreeIdAllocator(TreeIdAllocator treeIdAllocator) {
+    this.treeIdAllocator = treeIdAllocator;
+  }
+
+  @Override
+  public void setTreeMetrics(TreeMetrics treeMetrics) {
+    this.treeMetrics = treeMetrics == null ? TreeMetrics.NOOP : treeMetrics;
+  }
+
+  @Override
+  public T createNode(String name)
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
+      InstantiationException {
+    return nodeFactory.create(name);
+  }
+
+  @Override
+  public List<T> createNodes(Stream<String> names) throws NoSuchMethodException, InvocationTargetException {
+    List<T> nodes = new ArrayList<>();
+    Iterator<String> iterator = names.iterator();
+    while (iterator.hasNext()) {
+      nodes.add(nodeFactory.create(iterator.next()));
+    }
+    return nodes;
+  }
+
+  @Override
+  public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    long start = treeMetrics.start();
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    Long treeId = generateTreeId();
+    node.setDefaults();
+    node.setTreeId(treeId);
+
+    entityManager.persist(node);
+    treeStarted(treeId);
+    treeMetrics.record("startTree", entityClass, treeId, start, 1);
+    return treeId;
+  }
+
+  /**
+   * Creates a query reading a single tree, cacheable in the query cache region of the entity.
+   *
+   * @see TreeQueryCache
+   */
+  protected TypedQuery<T> createTreeQuery(String query) {
+    return TreeQueryCache.cacheable(entityManager.createQuery(query, entityClass), entityClass);
+  }
+
+  /**
+   * Called by the start of a tree - inserts the version row of the tree, if a {@link TreeVersionTracker}
+   * is set.
+   */
+  protected void treeStarted(long treeId) {
+    TreeQueryCache.evict(entityManager, entityClass);
+    if (treeVersionTracker != null) {
+      treeVersionTracker.start(entityManager, entityClass, treeId);
+    }
+  }
+
+  /**
+   * Called by every mutation of a tree - evicts the cached queries of the entity, and bumps the version
+   * of the tree, if a {@link TreeVersionTracker} is set.
+   */
+  protected void treeChanged(long treeId) {
+    TreeQueryCache.evict(entityManager, entityClass);
+    if (treeVersionTracker != null) {
+      treeVersionTracker.bump(entityManager, entityClass, treeId);
+    }
+  }
+
+  /**
+   * Records a completed operation with the {@link TreeMetrics} - the size of the result as the number of
+   * the returned nodes.
+   */
+  protected <R extends Collection<?>> R recorded(String operation, long treeId, long start, R result) {
+    treeMetrics.record(operation, entityClass, treeId, start, result.size());
+    return result;
+  }
+
+  protected Optional<T> recorded(String operation, long treeId, long start, Optional<T> result) {
+    treeMetrics.record(operation, entityClass, treeId, start, result.isPresent() ? 1 : 0);
+    return result;
+  }
+
+  protected T recorded(String operation, long treeId, long start, T result) {
+    treeMetrics.record(operation, entityClass, treeId, start, result == null ? 0 : 1);
+    return result;
+  }
+
+  protected Map<T, List<T>> recorded(String operation, long treeId, long start, Map<T, List<T>> result) {
+    if (treeMetrics.isEnabled()) {
+      int size = 0;
+      for (List<T> nodes : result.values()) {
+        size += nodes.size();
+      }
+      treeMetrics.record(operation, entityClass, treeId, start, size);
+    }
+    return result;
+  }
+
+  protected void ensureNodeIsNotAttachedToAnyTree(T node) throws NodeAlreadyAttachedToTree {
+    if (node.hasTreeId()) {
+      throw new NodeAlreadyAttachedToTree(
+          String.format("Node already has treeId set to %d", node.getTreeId()));
+    }
+  }
+
+  protected Long generateTreeId() {
+    if (treeIdAllocator != null) {
+      return treeIdAllocator.allocate(entityManager);
+    }
+    Long treeId = new Random().nextLong();
+    try {
+      entityManager.createQuery(queries.findAnyByTreeId, entityClass)
+          .setParameter("treeId", treeId)
+          .setMaxResults(1)
+          .getSingleResult();
+    } catch (NoResultException e) {
+      return treeId;
+    }
+    return generateTreeId();
+  }
+
+  @Override
+  @TreeReadOnly
+  public T findTreeRoot(Long treeId) throws NoResultException {
+    long start = treeMetrics.start();
+    T result = createTreeQuery(queries.findTreeRoot)
+        .setParameter("treeId", treeId)
+        .getSingleResult();
+    return recorded("findTreeRoot", treeId, start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<Long> findLargestTreeIds(int limit) {
+    long start = treeMetrics.start();
+    List<Long> result = entityManager.createQuery(queries.findLargestTreeIds, Long.class)
+        .setMaxResults(limit)
+        .getResultList();
+    return recorded("findLargestTreeIds", TreeEntity.NO_TREE_ID, start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public Optional<T> findByPath(Long treeId, List<String> names) {
+    long start = treeMetrics.start();
+    if (names.isEmpty()) {
+      return recorded("findByPath", treeId, start, Optional.empty());
+    }
+    TypedQuery<T> query = createTreeQuery(queries.findByPath(names.size()))
+        .setParameter("treeId", treeId);
+    for (int i = 0; i < names.size(); i++) {
+      query.setParameter("name" + i, names.get(i));
+    }
+    Optional<T> result = query.setMaxResults(1).getResultList().stream().findFirst();
+    return recorded("findByPath", treeId, start, result);
+  }
+
+  @Override
+  public T ensurePath(Long treeId, List<String> names) throws NoResultException {
+    long start = treeMetrics.start();
+    if (names.isEmpty()) {
+      throw new IllegalArgumentException("Path must contain at least the name of the tree root");
+    }
+    List<T> candidates = entityManager.createQuery(queries.findPathCandidates, entityClass)
+        .setParameter("treeId", treeId)
+        .setParameter("depth", (long) names.size())
+        .setParameter("names", new HashSet<>(names))
+        .getResultList();
+
+    T current = findPathNode(candidates, null, names.get(0))
+        .orElseThrow(() -> new NoResultException(
+            String.format("No tree %d with root named %s", treeId, names.get(0))));
+    int existing = 1;
+    for (; existing < names.size(); existing++) {
+      Optional<T> next = findPathNode(candidates, current, names.get(existing));
+      if (!next.isPresent()) {
+        break;
+      }
+      current = next.get();
+    }
+    if (existing == names.size()) {
+      return recorded("ensurePath", treeId, start, current);
+    }
+    T added = addPath(current, names.subList(existing, names.size()));
+    treeChanged(treeId);
+    return recorded("ensurePath", treeId, start, added);
+  }
+
+  protected Optional<T> findPathNode(List<T> candidates, T parent, String name) {
+    long depth = parent == null ? 0 : parent.getDepth() + 1;
+    return candidates.stream()
+        .filter(n -> n.getDepth() == depth && n.getName().equals(name))
+        .filter(n -> parent == null || (parent.getLft() <= n.getLft() && n.getRgt() <= parent.getRgt()))
+        .findFirst();
+  }
+
+  protected T addPath(T parent, List<String> names) {
+    T node = newNode(names.get(0));
+    Optional<T> youngest = findYoungestChild(parent);
+    if (youngest.isPresent()) {
+      addNextChild(youngest.get(), node);
+    } else {
+      addFirstChild(parent, node);
+    }
+    entityManager.persist(node);
+
+    for (int i = 1; i < names.size(); i++) {
+      T child = newNode(names.get(i));
+      addFirstChild(node, child);
+      entityManager.persist(child);
+      node = child;
+    }
+    return node;
+  }
+
+  protected T newNode(String name) {
+    try {
+      return createNode(name);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(String.format("Cannot create node %s", name), e);
+    }
+  }
+
+  @Override
+  public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    long start = treeMetrics.start();
+    ensureParentIsAttachedToTree(parent);
+    ensureNodeIsNotAttachedToAnyTree(child);
+
+    Optional<T> youngest = findYoungestChild(parent);
+    if (youngest.isPresent()) {
+      addNextChild(youngest.get(), child);
+    } else {
+      addFirstChild(parent, child);
+    }
+
+    entityManager.persist(child);
+    treeChanged(parent.getTreeId());
+    // no renumbering - the new child is encoded between its sibling and its parent
+    treeMetrics.recordShifted("addChild", entityClass, parent.getTreeId(), 0);
+    treeMetrics.record("addChild", entityClass, parent.getTreeId(), start, 1);
+  }
+
+  protected void addFirstChild(T parent, T child) {
+    child.setTreeId(parent.getTreeId());
+    child.setDepth(parent.getDepth() + 1);
+    child.setLftN(parent.getLftN());
+    child.setLftD(parent.getLftD());
+    child.setRgtN(2 * parent.getLftN() + parent.getRgtN());
+    child.setRgtD(2 * parent.getRgtD());
+  }
+
+  protected void addNextChild(T sibling, T child) {
+    child.setTreeId(sibling.getTreeId());
+    child.setDepth(sibling.getDepth());
+    child.setLftN(sibling.getRgtN());
+    child.setLftD(sibling.getRgtD());
+    child.setRgtN(2 * sibling.getRgtN() + 1);
+    child.setRgtD(2 * sibling.getRgtD());
+  }
+
+  @Override
+  public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    long start = treeMetrics.start();
+    ensureParentIsAttachedToTree(parent);
+    ensureChildOfParent(parent, child);
+
+    List<T> removed = findSubTree(child);
+    removed.forEach(this::removeNode);
+    treeChanged(parent.getTreeId());
+    if (ancestorChainCache != null) {
+      ancestorChainCache.invalidate(removed.stream().map(T::getId).collect(Collectors.toList()));
+    }
+    treeMetrics.recordShifted("removeChild", entityClass, parent.getTreeId(), 0);
+    treeMetrics.recordDeleted("removeChild", entityClass, parent.getTreeId(), removed.size());
+    return recorded("removeChild", parent.getTreeId(), start, removed);
+  }
+
+  protected void ensureParentIsAttachedToTree(T parent) throws NodeNotInTree {
+    if (!parent.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Parent node not attached to any tree: %s", parent));
+    }
+  }
+
+  protected void ensureChildOfParent(T parent, T child) throws NodeNotChildOfParent, NodeNotInTree {
+    if (parent.getLft() <= child.getLft() && child.getRgt() <= parent.getRgt()) {
+      if (child.getTreeId() != parent.getTreeId()) {
+        throw new NodeNotInTree(
+            String.format("Nodes not in same tree - parent: %s; child %s", parent, child));
+      }
+    } else {
+      throw new NodeNotChildOfParent(String.format("%s not parent of %s", parent, child));
+    }
+  }
+
+  protected void removeNode(T node) {
+    if (entityManager.contains(node)) {
+      entityManager.remove(node);
+    } else {
+      T attached = entityManager.find(entityClass, node);
+      entityManager.remove(attached);
+    }
+  }
+
+  @Override
+  public Optional<T> findYoungestChild(T parent) {
+    return entityManager.createQuery(queries.findYoungestChild, entityClass)
+        .setParameter("treeId", parent.getTreeId())
+        .setParameter("lft", parent.getLft())
+        .setParameter("rgt", parent.getRgt())
+        .setParameter("depth", parent.getDepth() + 1)
+        .getResultList().stream().findFirst();
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<T> findChildren(T node) {
+    long start = treeMetrics.start();
+    List<T> result = createTreeQuery(queries.findChildren)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("depth", node.getDepth() + 1)
+        .getResultList();
+    return recorded("findChildren", node.getTreeId(), start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public Map<T, List<T>> findChildrenOfAll(Collection<T> nodes) {
+    long start = treeMetrics.start();
+    Map<T, List<T>> result = TreeBatches.groupByNode(nodes, ids ->
+        entityManager.createQuery(queries.findChildrenOfAll, Object[].class)
+            .setParameter("ids", ids)
+            .getResultList());
+    return recorded("findChildrenOfAll", TreeEntity.NO_TREE_ID, start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<T> findSubTree(T node) {
+    long start = treeMetrics.start();
+    List<T> result = createTreeQuery(queries.findSubTree)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .getResultList();
+    return recorded("findSubTree", node.getTreeId(), start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<T> findSubTree(T node, long maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException(String.format("maxDepth must not be negative: %d", maxDepth));
+    }
+    long start = treeMetrics.start();
+    List<T> result = createTreeQuery(queries.findSubTreeWithMaxDepth)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("maxDepth", node.getDepth() + maxDepth)
+        .getResultList();
+    return recorded("findSubTree", node.getTreeId(), start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<T> findDescendantsAtDepth(T node, long depth) {
+    if (depth < 1) {
+      throw new IllegalArgumentException(String.format("depth must be positive: %d", depth));
+    }
+    long start = treeMetrics.start();
+    List<T> result = createTreeQuery(queries.findDescendantsAtDepth)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("depth", node.getDepth() + depth)
+        .getResultList();
+    return recorded("findDescendantsAtDepth", node.getTreeId(), start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<T> findLeaves(T node) {
+    long start = treeMetrics.start();
+    List<T> result = createTreeQuery(queries.findLeaves)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .getResultList();
+    return recorded("findLeaves", node.getTreeId(), start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<T> findSiblings(T node) {
+    long start = treeMetrics.start();
+    List<T> result = createTreeQuery(queries.findSiblings)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("parentDepth", node.getDepth() - 1)
+        .setParameter("depth", node.getDepth())
+        .setParameter("id", node.getId())
+        .getResultList();
+    return recorded("findSiblings", node.getTreeId(), start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public List<T> findAncestors(T node) {
+    long start = treeMetrics.start();
+    return recorded("findAncestors", node.getTreeId(), start, loadAncestors(node));
+  }
+
+  protected List<T> loadAncestors(T node) {
+    if (ancestorChainCache == null) {
+      return queryAncestors(node);
+    }
+    long[] ancestorIds = ancestorChainCache.get(node);
+    if (ancestorIds != null) {
+      List<T> ancestors = findAllById(node.getTreeId(), ancestorIds);
+      if (ancestors.size() == ancestorIds.length) {
+        return ancestors;
+      }
+    }
+    long version = ancestorChainCache.getVersion(node.getTreeId());
+    List<T> ancestors = queryAncestors(node);
+    ancestorChainCache.put(node, ancestors, version);
+    return ancestors;
+  }
+
+  /**
+   * Resolves the cached ids of an ancestor chain with a single query, in the order of the ids.
+   *
+   * @return the nodes up to the first missing one - shorter than the ids, if any of them was removed
+   */
+  protected List<T> findAllById(long treeId, long[] ids) {
+    if (ids.length == 0) {
+      return new ArrayList<>();
+    }
+    List<Long> idList = new ArrayList<>(ids.length);
+    for (long id : ids) {
+      idList.add(id);
+    }
+    Map<Long, T> found = createTreeQuery(queries.findAllById)
+        .setParameter("treeId", treeId)
+        .setParameter("ids", idList)
+        .getResultList().stream()
+        .collect(Collectors.toMap(TreeEntity::getId, node -> node));
+    List<T> nodes = new ArrayList<>(ids.length);
+    for (long id : ids) {
+      T node = found.get(id);
+      if (node == null) {
+        break;
+      }
+      nodes.add(node);
+    }
+    return nodes;
+  }
+
+  protected List<T> queryAncestors(T node) {
+    return createTreeQuery(queries.findAncestors)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("depth", node.getDepth())
+        .getResultList();
+  }
+
+  @Override
+  @TreeReadOnly
+  public Map<T, List<T>> findAncestorsOfAll(Collection<T> nodes) {
+    long start = treeMetrics.start();
+    Map<T, List<T>> result = TreeBatches.groupByNode(nodes, ids ->
+        entityManager.createQuery(queries.findAncestorsOfAll, Object[].class)
+            .setParameter("ids", ids)
+            .getResultList());
+    return recorded("findAncestorsOfAll", TreeEntity.NO_TREE_ID, start, result);
+  }
+
+  @Override
+  @TreeReadOnly
+  public Optional<T> findParent(T node) {
+    long start = treeMetrics.start();
+    return recorded("findParent", node.getTreeId(), start, loadParent(node));
+  }
+
+  protected Optional<T> loadParent(T node) {
+    long[] ancestorIds = ancestorChainCache == null ? null : ancestorChainCache.get(node);
+    if (ancestorIds != null) {
+      if (ancestorIds.length == 0) {
+        return Optional.empty();
+      }
+      T parent = entityManager.find(entityClass, ancestorIds[ancestorIds.length - 1]);
+      if (parent != null) {
+        return Optional.of(parent);
+      }
+    }
+    return queryParent(node);
+  }
+
+  protected Optional<T> queryParent(T node) {
+    return createTreeQuery(queries.findParent)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .setParameter("depth", node.getDepth() - 1)
+        .getResultList().stream().findFirst();
+  }
+}
@@ -0,0 +1,41 @@
+package works.hacker.mptt.id;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Allocates each {@code treeId} from a database sequence - a single round trip per new tree.
+ * <p>
+ * The statement fetching the next value is taken from the Hibernate dialect, thus it works with any
+ * database supporting sequences. The sequence is not created by the allocator, e.g. on H2:
+ * <pre>
+ * CREATE SEQUENCE tree_id_seq START WITH 1
+ * </pre>
+ * <b>NOTE:</b> The trees started without an allocator have random ids - start the sequence above the
+ * largest of them, when switching an existing table over.
+ */
+public class SequenceTreeIdAllocator implements TreeIdAllocator {
+  private final String sequenceName;
+  private volatile String nextValue;
+
+  /**
+   * @param sequenceName the name of the sequence to allocate from
+   */
+  public SequenceTreeIdAllocator(String sequenceName) {
+    this.sequenceName = sequenceName;
+  }
+
+  @Override
+  public long allocate(EntityManager entityManager) {
+    if (nextValue == null) {
+      nextValue = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+          .getJdbcServices().getDialect().getSequenceNextValString(sequenceName);
+    }
+    return ((Number) entityManager.createNativeQuery(nextValue).getSingleResult()).longValue();
+  }
+
+  public String getSequenceName() {
+    return sequenceName;
+  }
+}
@@ -0,0 +1,126 @@
+package works.hacker.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.repo.classic.MpttNodeRepository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Routes the repositories over two in-memory H2 databases - the replica has the schema of the primary,
+ * but is never replicated to, thus each read shows which database served it.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@TestPropertySource(properties = {
+    "tree.datasource.replica.url=" + ReadReplicaDataSourceTest.REPLICA_URL,
+    // the caches are shared by both databases, and would answer the reads of the test
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"})
+@DirtiesContext
+public class ReadReplicaDataSourceTest {
+  static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+  @Resource
+  MpttNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  @Resource
+  PlatformTransactionManager transactionManager;
+
+  @Resource
+  EntityManagerFactory entityManagerFactory;
+
+  private TransactionTemplate tx;
+
+  @Before
+  public void init() throws SQLException {
+    treeRepo.setEntityClass(MpttNode.class);
+    tx = new TransactionTemplate(transactionManager);
+
+    assertThat(dataSource, instanceOf(ReadReplicaDataSource.class));
+    DataSource primary = ((ReadReplicaDataSource) dataSource).getPrimary();
+    try (Connection primaryConnection = primary.getConnection();
+         Statement script = primaryConnection.createStatement();
+         ResultSet ddl = script.executeQuery("SCRIPT NODATA");
+         Connection replica = openReplica();
+         Statement statement = replica.createStatement()) {
+      statement.execute("DROP ALL OBJECTS");
+      while (ddl.next()) {
+        statement.execute(ddl.getString(1));
+      }
+    }
+  }
+
+  @After
+  public void cleanUp() {
+    tx.execute(status -> {
+      treeRepo.deleteAllInBatch();
+      return null;
+    });
+  }
+
+  @Test
+  public void givenTreeOnPrimary_whenRead_thenReadOnlyOnReplicaAndReadWriteOnPrimary() throws SQLException {
+    Long treeId = tx.execute(status -> {
+      try {
+        return treeRepo.startTree(new MpttNode("primary-root"));
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertThat(treeRepo.findByPath(treeId, Collections.singletonList("primary-root")).isPresent(),
+        is(false));
+
+    try (Connection replica = openReplica();
+         PreparedStatement insert = replica.prepareStatement(
+             "INSERT INTO MpttNode (id, name, treeId, depth, lft, rgt) VALUES (?, ?, ?, 0, 1, 2)")) {
+      insert.setLong(1, -1L);
+      insert.setString(2, "replica-root");
+      insert.setLong(3, treeId);
+      insert.executeUpdate();
+    }
+    assertThat(treeRepo.findTreeRoot(treeId).getName(), is("replica-root"));
+    assertThat(treeRepo.findChildren(treeRepo.findTreeRoot(treeId)), is(empty()));
+
+    // read-your-writes: within a read-write transaction the reads stay on the primary
+    String name = tx.execute(status -> treeRepo.findTreeRoot(treeId).getName());
+    assertThat(name, is("primary-root"));
+  }
+
+  @Test
+  public void givenSecondLevelCacheDisabled_whenStarted_thenNoCacheRegions() {
+    SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    assertThat(sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled(), is(false));
+    assertThat(sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled(), is(false));
+    assertThat(sessionFactory.getCache().getSecondLevelCacheRegionNames(), is(emptyArray()));
+  }
+
+  private static Connection openReplica() throws SQLException {
+    return DriverManager.getConnection(REPLICA_URL, "test", "test");
+  }
+}
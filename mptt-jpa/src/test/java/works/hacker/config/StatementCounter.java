@@ -0,0 +1,181 @@
+package works.hacker.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the JDBC statements executed on the current thread, and the rows they write - installed around
+ * the data source of the tests listing it in their {@code @ContextConfiguration}.
+ * <p>
+ * Pins the number of the round trips an operation may take, and the number of the rows it may write,
+ * thus a regression to a query per node, or to an update of the nodes not changed, fails the tests:
+ * <pre><code>
+ * StatementCounter.reset();
+ * treeRepo.findSubTree(root);
+ * StatementCounter.assertAtMost(1);
+ * </code></pre>
+ * Each {@code execute*} call counts as one statement, and so does each {@code executeBatch} - with all
+ * the rows of the batch counted by {@link #rowsWritten}. The reads answered by the second-level and query
+ * caches execute no statement; the plain JDBC of the {@code JdbcTreeReader} is counted the same as the
+ * statements of Hibernate.
+ */
+public class StatementCounter implements BeanPostProcessor {
+  private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+  private static final ThreadLocal<long[]> ROWS_WRITTEN = ThreadLocal.withInitial(() -> new long[1]);
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    return bean instanceof DataSource ? countingDataSource((DataSource) bean) : bean;
+  }
+
+  public static void reset() {
+    STATEMENTS.get().clear();
+    ROWS_WRITTEN.get()[0] = 0;
+  }
+
+  /**
+   * @return the number of the statements executed since the last {@link #reset} - a JDBC batch counts
+   * once
+   */
+  public static int count() {
+    return STATEMENTS.get().size();
+  }
+
+  /**
+   * @return the number of the rows inserted, updated or deleted since the last {@link #reset}
+   */
+  public static long rowsWritten() {
+    return ROWS_WRITTEN.get()[0];
+  }
+
+  public static List<String> statements() {
+    return new ArrayList<>(STATEMENTS.get());
+  }
+
+  /**
+   * @throws AssertionError listing the statements, if more than {@code max} were executed since the last
+   *                        {@link #reset}
+   */
+  public static void assertAtMost(int max) {
+    assertAtMost(max, "");
+  }
+
+  public static void assertAtMost(int max, String operation) {
+    List<String> statements = STATEMENTS.get();
+    if (statements.size() > max) {
+      throw new AssertionError(String.format("%s executed %d SQL statements, expected at most %d:%n%s",
+          operation(operation), statements.size(), max, String.join(System.lineSeparator(), statements)));
+    }
+  }
+
+  /**
+   * @throws AssertionError listing the statements, if other than {@code rows} rows were written since the
+   *                        last {@link #reset}
+   */
+  public static void assertRowsWritten(long rows, String operation) {
+    if (rowsWritten() != rows) {
+      throw new AssertionError(String.format("%s wrote %d rows, expected %d:%n%s",
+          operation(operation), rowsWritten(), rows, String.join(System.lineSeparator(), STATEMENTS.get())));
+    }
+  }
+
+  private static String operation(String operation) {
+    return operation.isEmpty() ? "Operation" : operation;
+  }
+
+  private static DataSource countingDataSource(DataSource dataSource) {
+    // Closeable - thus the destroy method of the pool is still found
+    return (DataSource) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+        new Class<?>[]{DataSource.class, Closeable.class}, (proxy, method, args) -> {
+          if (method.getName().equals("close") && method.getParameterCount() == 0) {
+            if (dataSource instanceof AutoCloseable) {
+              ((AutoCloseable) dataSource).close();
+            }
+            return null;
+          }
+          Object result = invoke(dataSource, method, args);
+          return result instanceof Connection ? countingConnection((Connection) result) : result;
+        });
+  }
+
+  private static Connection countingConnection(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+        new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+          Object result = invoke(connection, method, args);
+          if (result instanceof Statement) {
+            String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+            return countingStatement((Statement) result, sql);
+          }
+          return result;
+        });
+  }
+
+  private static Statement countingStatement(Statement statement, String preparedSql) {
+    Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+        : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+    return (Statement) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+        new Class<?>[]{type}, new InvocationHandler() {
+          private final List<String> batch = new ArrayList<>();
+
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            Object result = StatementCounter.invoke(statement, method, args);
+            if (name.equals("addBatch")) {
+              batch.add(args == null ? preparedSql : (String) args[0]);
+            } else if (name.equals("clearBatch")) {
+              batch.clear();
+            } else if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+              STATEMENTS.get().add(String.format("[batch of %d] %s", batch.size(), String.join("; ",
+                  batch.stream().distinct().toArray(String[]::new))));
+              batch.clear();
+              written(result instanceof int[] ? toLongs((int[]) result) : (long[]) result);
+            } else if (name.startsWith("execute")) {
+              STATEMENTS.get().add(args == null ? preparedSql : (String) args[0]);
+              if (result instanceof Number) {
+                written(((Number) result).longValue());
+              } else if (Boolean.FALSE.equals(result)) {
+                written(statement.getUpdateCount());
+              }
+            }
+            return result;
+          }
+        });
+  }
+
+  private static void written(long... rows) {
+    for (long row : rows) {
+      if (row > 0) {
+        ROWS_WRITTEN.get()[0] += row;
+      }
+    }
+  }
+
+  private static long[] toLongs(int[] rows) {
+    long[] longs = new long[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      longs[i] = rows[i];
+    }
+    return longs;
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
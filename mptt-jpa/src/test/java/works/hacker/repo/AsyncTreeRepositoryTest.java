@@ -0,0 +1,69 @@
+package works.hacker.repo;
+
+import org.junit.Test;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.AsyncTreeRepository;
+import works.hacker.mptt.TreeRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Bounds the operations of a repository blocking until released - no database is involved, the
+ * queueing does not depend on the encoding of the trees.
+ */
+public class AsyncTreeRepositoryTest {
+  @Test
+  @SuppressWarnings("unchecked")
+  public void givenBoundedAsync_whenQueueFull_thenRejected() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    TreeRepository<MpttNode> blocking = (TreeRepository<MpttNode>) Proxy.newProxyInstance(
+        TreeRepository.class.getClassLoader(), new Class<?>[]{TreeRepository.class},
+        (proxy, method, args) -> {
+          started.countDown();
+          release.await();
+          return Collections.emptyList();
+        });
+
+    AsyncTreeRepository<MpttNode> async = AsyncTreeRepository.create(blocking, 2, 1);
+    try {
+      CompletableFuture<List<MpttNode>> first = async.findChildren(new MpttNode("root"));
+      CompletableFuture<List<MpttNode>> second = async.findChildren(new MpttNode("child-1"));
+      assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+      CompletableFuture<List<MpttNode>> queued = async.findChildren(new MpttNode("child-2"));
+      CompletableFuture<List<MpttNode>> rejected = async.findChildren(new MpttNode("subChild-1"));
+
+      assertThat(rejected.isCompletedExceptionally(), is(true));
+      try {
+        rejected.join();
+      } catch (CompletionException e) {
+        assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+      }
+      assertThat(async.getActiveCount(), is(2));
+      assertThat(async.getQueuedCount(), is(1));
+      assertThat(async.getRejectedCount(), is(1L));
+      assertThat(async.getCompletedCount(), is(0L));
+
+      release.countDown();
+      CompletableFuture.allOf(first, second, queued).join();
+      assertThat(async.getCompletedCount(), is(3L));
+      assertThat(async.getFailedCount(), is(0L));
+      assertThat(async.getRejectedCount(), is(1L));
+      assertThat(async.getQueuedCount(), is(0));
+      assertThat(async.getActiveCount(), is(0));
+    } finally {
+      release.countDown();
+      async.close();
+    }
+  }
+}
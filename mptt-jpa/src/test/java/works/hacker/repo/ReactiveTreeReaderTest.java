@@ -0,0 +1,158 @@
+package works.hacker.repo;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.test.StepVerifier;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.ReactiveTreeReader;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeRow;
+import works.hacker.mptt.TreeTableMapping;
+import works.hacker.mptt.classic.MpttReactiveTreeReader;
+import works.hacker.mptt.dyadic.DyadicReactiveTreeReader;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Reads the trees over R2DBC, on connections of their own - thus the trees are committed, unlike in the
+ * transactional repository tests, and removed after each test.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class ReactiveTreeReaderTest {
+  @Resource
+  MpttNodeRepository mpttRepo;
+
+  @Resource
+  DyadicNodeRepository dyadicRepo;
+
+  @Resource
+  PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate tx;
+  private ConnectionFactory connectionFactory;
+
+  @Before
+  public void init() {
+    mpttRepo.setEntityClass(MpttNode.class);
+    dyadicRepo.setEntityClass(DyadicNode.class);
+    tx = new TransactionTemplate(transactionManager);
+    // the in-memory database of the JPA data source
+    connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+        .url("mem:testdb;DB_CLOSE_DELAY=-1")
+        .username("test")
+        .password("test")
+        .build());
+  }
+
+  @After
+  public void cleanUp() {
+    tx.execute(status -> {
+      mpttRepo.deleteAllInBatch();
+      dyadicRepo.deleteAllInBatch();
+      return null;
+    });
+  }
+
+  @Test
+  public void givenClassicTree_whenReadReactive_thenSameAsJpa() {
+    assertSameAsJpa(mpttRepo, MpttNode::new,
+        new MpttReactiveTreeReader(connectionFactory, TreeTableMapping.of(MpttNode.class)));
+  }
+
+  @Test
+  public void givenDyadicTree_whenReadReactive_thenSameAsJpa() {
+    assertSameAsJpa(dyadicRepo, DyadicNode::new,
+        new DyadicReactiveTreeReader(connectionFactory, TreeTableMapping.of(DyadicNode.class)));
+  }
+
+  private <T extends TreeEntity> void assertSameAsJpa(TreeRepository<T> treeRepo, Function<String, T> factory,
+      ReactiveTreeReader reader) {
+    // root
+    // |- child-1
+    // |  |- sub-child-1
+    // |  |- sub-child-2
+    // |- child-2
+    Long treeId = tx.execute(status -> {
+      try {
+        T root = factory.apply("root");
+        Long id = treeRepo.startTree(root);
+        T child1 = factory.apply("child-1");
+        treeRepo.addChild(root, child1);
+        treeRepo.addChild(child1, factory.apply("sub-child-1"));
+        treeRepo.addChild(child1, factory.apply("sub-child-2"));
+        treeRepo.addChild(root, factory.apply("child-2"));
+        return id;
+      } catch (TreeRepository.NodeAlreadyAttachedToTree | TreeRepository.NodeNotInTree e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    Map<TreeRow, List<List<TreeRow>>> expected = tx.execute(status -> {
+      Map<TreeRow, List<List<TreeRow>>> result = new LinkedHashMap<>();
+      for (T node : treeRepo.findSubTree(treeRepo.findTreeRoot(treeId))) {
+        List<List<TreeRow>> reads = new ArrayList<>();
+        reads.add(toRows(treeRepo.findChildren(node)));
+        reads.add(toRows(treeRepo.findSubTree(node)));
+        reads.add(toRows(treeRepo.findAncestors(node)));
+        reads.add(toRows(treeRepo.findParent(node).map(Collections::singletonList)
+            .orElse(Collections.emptyList())));
+        result.put(TreeRow.of(node), reads);
+      }
+      return result;
+    });
+    List<TreeRow> preorder = new ArrayList<>(expected.keySet());
+    assertThat(preorder.stream().map(TreeRow::getName).collect(Collectors.toList()),
+        contains("root", "child-1", "sub-child-1", "sub-child-2", "child-2"));
+
+    StepVerifier.create(reader.findTreeRoot(treeId))
+        .expectNext(preorder.get(0))
+        .verifyComplete();
+    for (Map.Entry<TreeRow, List<List<TreeRow>>> entry : expected.entrySet()) {
+      TreeRow row = entry.getKey();
+      assertThat(reader.findChildren(row).collectList().block(), is(entry.getValue().get(0)));
+      assertThat(reader.findSubTree(row).collectList().block(), is(entry.getValue().get(1)));
+      assertThat(reader.findAncestors(row).collectList().block(), is(entry.getValue().get(2)));
+      assertThat(reader.findParent(row).flux().collectList().block(), is(entry.getValue().get(3)));
+    }
+
+    // emits the sub-tree in preorder, as requested
+    StepVerifier.create(reader.findSubTree(preorder.get(0)), 2)
+        .expectNext(preorder.get(0), preorder.get(1))
+        .thenRequest(2)
+        .expectNext(preorder.get(2), preorder.get(3))
+        .thenCancel()
+        .verify();
+  }
+
+  private static <T extends TreeEntity> List<TreeRow> toRows(List<T> nodes) {
+    return nodes.stream().map(TreeRow::of).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,1660 @@
+package works.hacker.repo.dyadic;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import org.springframework.transaction.PlatformTransactionManager;
+import works.hacker.config.StatementCounter;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.AncestorChainCache;
+import works.hacker.mptt.AsyncTreeRepository;
+import works.hacker.mptt.CachingTreeRepository;
+import works.hacker.mptt.JdbcTreeReader;
+import works.hacker.mptt.NodeFactory;
+import works.hacker.mptt.TreeChildrenLoader;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeIndex;
+import works.hacker.mptt.TreeQueryCache;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeRow;
+import works.hacker.mptt.TreeSchema;
+import works.hacker.mptt.TreeTableMapping;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.TreeWarmUp;
+import works.hacker.mptt.classic.MpttRepository;
+import works.hacker.mptt.dyadic.DyadicEntity;
+import works.hacker.mptt.dyadic.DyadicJdbcTreeReader;
+import works.hacker.mptt.dyadic.DyadicQueries;
+import works.hacker.mptt.id.HiLoTreeIdAllocator;
+import works.hacker.mptt.id.SequenceTreeIdAllocator;
+import works.hacker.mptt.metrics.MicrometerTreeMetrics;
+import works.hacker.mptt.version.TreeVersionPoller;
+import works.hacker.mptt.version.TreeVersionTracker;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import javax.transaction.Transactional;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class, StatementCounter.class},
+    loader = AnnotationConfigContextLoader.class)
+@Transactional
+@DirtiesContext
+public class DyadicNodeRepoTest {
+  private final Logger LOG = LoggerFactory.getLogger(DyadicNodeRepoTest.class);
+
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  @Resource
+  DyadicNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  @Resource
+  PlatformTransactionManager transactionManager;
+
+  protected TreeUtils<DyadicNode> utils;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(DyadicNode.class);
+    utils = new TreeUtils<>(treeRepo);
+  }
+
+  @Test
+  public void giveSaved_whenFindByName_thenOK() {
+    assertThat(treeRepo.count(), is(0L));
+
+    DyadicNode expected = new DyadicNode("test-01");
+    treeRepo.save(expected);
+    assertThat(treeRepo.count(), is(1L));
+
+    DyadicNode actual = treeRepo.findByName(expected.getName());
+    assertThat(actual.getId(), is(notNullValue()));
+    assertThat(actual.getName(), is(expected.getName()));
+  }
+
+  @Test
+  public void givenNoTree_whenConstructed_thenHasNoTreeId() {
+    DyadicNode actual = new DyadicNode("test");
+    assertThat(actual.hasTreeId(), is(false));
+  }
+
+  @Test
+  public void givenNoTree_whenStartTree_thenOK() {
+    TreeWithNoChildren<DyadicNode> tree = new TreeWithNoChildren<>(treeRepo, utils);
+
+    assertThat(treeRepo.count(), is(1L));
+
+    DyadicNode actual = treeRepo.findByName(tree.root.getName());
+    assertThat(actual.getTreeId(), not(TreeEntity.NO_TREE_ID));
+    assertThat(actual.getTreeId(), is(tree.treeId));
+
+    assertThat(actual.getLft(), is(actual.getStartLft()));
+    assertThat(actual.getRgt(), is(actual.getStartRgt()));
+
+    assertThat(actual.getDepth(), is(DyadicEntity.START));
+
+    assertThat(actual.getLftN(), is(DyadicEntity.START));
+    assertThat(actual.getLftD(), is(DyadicEntity.END));
+
+    assertThat(actual.getRgtN(), is(DyadicEntity.END));
+    assertThat(actual.getRgtD(), is(DyadicEntity.END));
+
+    assertThat(actual.getLft(), is(0.0));
+    assertThat(actual.getRgt(), is(1.0));
+  }
+
+  @Test
+  public void givenTree_whenStartTreeWithUsedRootNode_thenError()
+      throws TreeRepository.NodeAlreadyAttachedToTree {
+    TreeWithNoChildren<DyadicNode> tree = new TreeWithNoChildren<>(treeRepo, utils);
+
+    exceptionRule.expect(MpttRepository.NodeAlreadyAttachedToTree.class);
+    exceptionRule.expectMessage(String.format("Node already has treeId set to %d", tree.treeId));
+    DyadicNode root = treeRepo.findByName(tree.root.getName());
+    treeRepo.startTree(root);
+  }
+
+  @Test
+  public void givenTree_whenFindTreeRoot_thenOK() {
+    TreeWithNoChildren<DyadicNode> tree = new TreeWithNoChildren<>(treeRepo, utils);
+    DyadicNode actual = treeRepo.findTreeRoot(tree.treeId);
+    assertThat(actual, is(tree.root));
+  }
+
+  @Test
+  public void givenParentNodeNotAttachedToTree_whenAddChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeAlreadyAttachedToTree {
+    DyadicNode parent = new DyadicNode("parent");
+    DyadicNode child = new DyadicNode("child");
+
+    exceptionRule.expect(TreeRepository.NodeNotInTree.class);
+    exceptionRule.expectMessage(String.format("Parent node not attached to any tree: %s", parent));
+    treeRepo.addChild(parent, child);
+  }
+
+  @Test
+  public void givenChildIsTreeRoot_whenAddChild_thenError()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    DyadicNode parent = new DyadicNode("parent");
+    DyadicNode child = new DyadicNode("child");
+
+    treeRepo.startTree(parent);
+    Long treeId = treeRepo.startTree(child);
+
+    exceptionRule.expect(MpttRepository.NodeAlreadyAttachedToTree.class);
+    exceptionRule.expectMessage(String.format("Node already has treeId set to %d", treeId));
+    treeRepo.addChild(parent, child);
+  }
+
+
+  @Test
+  public void givenEmptyTree_whenFindYoungestChild_thenOptionalEmpty()
+      throws TreeRepository.NodeAlreadyAttachedToTree {
+    DyadicNode root = new DyadicNode("root");
+    treeRepo.startTree(root);
+
+    Optional<DyadicNode> actual = treeRepo.findYoungestChild(root);
+    assertThat(actual, is(Optional.empty()));
+  }
+
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  @Test
+  public void givenEmptyTree_whenAddChild_thenOK()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    DyadicNode root = new DyadicNode("root");
+    treeRepo.startTree(root);
+
+    DyadicNode child = new DyadicNode("child");
+    treeRepo.addChild(root, child);
+
+    assertThat(treeRepo.count(), is(2L));
+
+    DyadicNode actualRoot = treeRepo.findByName("root");
+    DyadicNode actualChild = treeRepo.findByName("child");
+
+    assertThat(actualRoot.getLft(), is(0.0));
+    assertThat(actualRoot.getRgt(), is(1.0));
+    assertThat(actualChild.getTreeId(), is(root.getTreeId()));
+    assertThat(actualChild.getLft(), is(root.getLft()));
+    assertThat(actualChild.getRgt(), is((root.getLft() + root.getRgt()) / 2));
+
+    Optional<DyadicNode> youngestChild = treeRepo.findYoungestChild(actualRoot);
+    assertThat(youngestChild.get(), is(child));
+  }
+
+  @Test
+  public void givenTreeWithoutChildren_whenPrintTree_thenOK() {
+    TreeWithNoChildren<DyadicNode> tree = new TreeWithNoChildren<>(treeRepo, utils);
+    assertThat(utils.printTree(tree.root), is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenFindChildren_thenContainsOneChild() {
+    TreeWithOneChild<DyadicNode> tree = new TreeWithOneChild<>(treeRepo, utils);
+    List<DyadicNode> actual = treeRepo.findChildren(tree.root);
+    assertThat(actual, containsInRelativeOrder(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithChild_whenPrintTree_thenOK() {
+    TreeWithOneChild<DyadicNode> tree = new TreeWithOneChild<>(treeRepo, utils);
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenFindChildren_thenContainsTwoChildren() {
+    TreeWithTwoChildren<DyadicNode> tree = new TreeWithTwoChildren<>(treeRepo, utils);
+    List<DyadicNode> actual = treeRepo.findChildren(tree.root);
+    assertThat(actual, containsInRelativeOrder(tree.child1, tree.child2));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenPrintTree_thenOK() {
+    TreeWithTwoChildren<DyadicNode> tree = new TreeWithTwoChildren<>(treeRepo, utils);
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenFindChildren_thenContainsOneChild() {
+    TreeWithChildAndSubChild<DyadicNode> tree = new TreeWithChildAndSubChild<>(treeRepo, utils);
+    List<DyadicNode> actual = treeRepo.findChildren(tree.root);
+    assertThat(actual.size(), is(1));
+    assertThat(actual, containsInRelativeOrder(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenPrintTree_thenOK() {
+    TreeWithChildAndSubChild<DyadicNode> tree = new TreeWithChildAndSubChild<>(treeRepo, utils);
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenComplexTree1_whenPrintTree_thenOK() {
+    ComplexTree1<DyadicNode> tree = new ComplexTree1<>(treeRepo, utils);
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenComplexTree1_whenFindChildren_thenContainsTwoChildren() {
+    ComplexTree1<DyadicNode> tree = new ComplexTree1<>(treeRepo, utils);
+    List<DyadicNode> actual = treeRepo.findChildren(tree.root);
+    assertThat(actual.size(), is(2));
+    assertThat(actual, containsInRelativeOrder(tree.child1, tree.child2));
+  }
+
+  @Test
+  public void givenComplexTree2_whenPrintTree_thenOK() {
+    ComplexTree2<DyadicNode> tree = new ComplexTree2<>(treeRepo, utils);
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenComplexTree2_whenFindChildren_thenOK() {
+    ComplexTree2<DyadicNode> tree = new ComplexTree2<>(treeRepo, utils);
+
+    List<DyadicNode> actual1 = treeRepo.findChildren(tree.root);
+    assertThat(actual1.size(), is(2));
+    assertThat(actual1, containsInRelativeOrder(tree.child1, tree.child2));
+
+    List<DyadicNode> actual2 = treeRepo.findChildren(tree.child1);
+    assertThat(actual2.size(), is(1));
+    assertThat(actual2, contains(tree.subChild1));
+
+    List<DyadicNode> actual3 = treeRepo.findChildren(tree.subChild1);
+    assertThat(actual3.size(), is(1));
+    assertThat(actual3, contains(tree.subSubChild1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenPrintTree_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+
+    String actualPartial = utils.printTree(tree.child1);
+    assertThat(actualPartial, is(tree.getExpectedPartial()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindChildren_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    List<DyadicNode> actual1 = treeRepo.findChildren(tree.root);
+    assertThat(actual1.size(), is(2));
+    assertThat(actual1, containsInRelativeOrder(tree.child1, tree.child2));
+
+    List<DyadicNode> actual2 = treeRepo.findChildren(tree.child1);
+    assertThat(actual2.size(), is(2));
+    assertThat(actual2, containsInRelativeOrder(tree.subChild1, tree.subChild2));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindChildrenOfAll_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    Map<DyadicNode, List<DyadicNode>> actual = treeRepo.findChildrenOfAll(
+        Arrays.asList(tree.root, tree.child1, tree.child2, tree.lastSubChild));
+
+    assertThat(actual.keySet(), contains(tree.root, tree.child1, tree.child2, tree.lastSubChild));
+    assertThat(actual.get(tree.root), contains(tree.child1, tree.child2));
+    assertThat(actual.get(tree.child1), contains(tree.subChild1, tree.subChild2));
+    assertThat(actual.get(tree.child2), contains(tree.lastSubChild));
+    assertThat(actual.get(tree.lastSubChild), is(empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenTreeChildrenLoaderDispatch_thenAllLoaded() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    TreeChildrenLoader<DyadicNode> loader = new TreeChildrenLoader<>(treeRepo);
+
+    CompletableFuture<List<DyadicNode>> rootChildren = loader.load(tree.root);
+    CompletableFuture<List<DyadicNode>> child1Children = loader.load(tree.child1);
+    assertThat(loader.load(tree.root), is(sameInstance(rootChildren)));
+    assertThat(rootChildren.isDone(), is(false));
+
+    assertThat(loader.dispatch(), is(2));
+    assertThat(rootChildren.join(), contains(tree.child1, tree.child2));
+    assertThat(child1Children.join(), contains(tree.subChild1, tree.subChild2));
+
+    assertThat(loader.load(tree.root).isDone(), is(true));
+    assertThat(loader.dispatch(), is(0));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSubTreeWithMaxDepth_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findSubTree(tree.root, 0), contains(tree.root));
+    assertThat(treeRepo.findSubTree(tree.root, 1), contains(tree.root, tree.child1, tree.child2));
+    assertThat(treeRepo.findSubTree(tree.root, 2),
+        contains(tree.root, tree.child1, tree.subChild1, tree.subChild2, tree.child2, tree.lastSubChild));
+    assertThat(treeRepo.findSubTree(tree.child1, 1),
+        contains(tree.child1, tree.subChild1, tree.subChild2));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindDescendantsAtDepth_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findDescendantsAtDepth(tree.root, 1), contains(tree.child1, tree.child2));
+    assertThat(treeRepo.findDescendantsAtDepth(tree.root, 2),
+        contains(tree.subChild1, tree.subChild2, tree.lastSubChild));
+    assertThat(treeRepo.findDescendantsAtDepth(tree.root, 3), contains(tree.subSubChild1));
+    assertThat(treeRepo.findDescendantsAtDepth(tree.child2, 2), is(empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindDescendantsAtDepthZero_thenError() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    // translated by the persistence exception translation of the Spring Data repository
+    exceptionRule.expect(InvalidDataAccessApiUsageException.class);
+    exceptionRule.expectCause(instanceOf(IllegalArgumentException.class));
+    exceptionRule.expectMessage("depth must be positive: 0");
+    treeRepo.findDescendantsAtDepth(tree.root, 0);
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSubTreeWithNegativeMaxDepth_thenError() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    // translated by the persistence exception translation of the Spring Data repository
+    exceptionRule.expect(InvalidDataAccessApiUsageException.class);
+    exceptionRule.expectCause(instanceOf(IllegalArgumentException.class));
+    exceptionRule.expectMessage("maxDepth must not be negative: -1");
+    treeRepo.findSubTree(tree.root, -1);
+  }
+
+  @Test
+  public void givenCachedComplexTree3_whenFindDescendantsAtDepthZero_thenError() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    CachingTreeRepository<DyadicNode> cachedRepo =
+        new CachingTreeRepository<>(treeRepo, 10, transactionManager);
+    assertThat(cachedRepo.findChildren(tree.root), contains(tree.child1, tree.child2));
+
+    // not translated - the caching decorator is no Spring Data repository, and reads the snapshot
+    exceptionRule.expect(IllegalArgumentException.class);
+    exceptionRule.expectMessage("depth must be positive: 0");
+    cachedRepo.findDescendantsAtDepth(tree.root, 0);
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindLeaves_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findLeaves(tree.root),
+        contains(tree.subSubChild1, tree.subChild2, tree.lastSubChild));
+    assertThat(treeRepo.findLeaves(tree.child1), contains(tree.subSubChild1, tree.subChild2));
+    assertThat(treeRepo.findLeaves(tree.subChild2), contains(tree.subChild2));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSiblings_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findSiblings(tree.root), is(empty()));
+    assertThat(treeRepo.findSiblings(tree.child1), contains(tree.child2));
+    assertThat(treeRepo.findSiblings(tree.child2), contains(tree.child1));
+    assertThat(treeRepo.findSiblings(tree.subChild2), contains(tree.subChild1));
+    assertThat(treeRepo.findSiblings(tree.subSubChild1), is(empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindByPath_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    Long treeId = tree.root.getTreeId();
+
+    assertThat(treeRepo.findByPath(treeId, Arrays.asList("root")).get(), is(tree.root));
+    assertThat(treeRepo.findByPath(treeId, Arrays.asList("root", "child-1", "subChild-2")).get(),
+        is(tree.subChild2));
+    assertThat(treeRepo.findByPath(treeId, Arrays.asList("root", "child-2", "lastSubChild")).get(),
+        is(tree.lastSubChild));
+    assertThat(treeRepo.findByPath(treeId, Arrays.asList("root", "child-2", "subChild-2")),
+        is(Optional.empty()));
+    assertThat(treeRepo.findByPath(treeId, Arrays.asList("child-1")), is(Optional.empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenEnsurePath_thenOnlyMissingSuffixCreated() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    Long treeId = tree.root.getTreeId();
+    long count = treeRepo.count();
+
+    assertThat(treeRepo.ensurePath(treeId, Arrays.asList("root", "child-1", "subChild-1")),
+        is(tree.subChild1));
+    assertThat(treeRepo.count(), is(count));
+
+    DyadicNode new2 = treeRepo.ensurePath(treeId, Arrays.asList("root", "child-2", "new-1", "new-2"));
+    assertThat(treeRepo.count(), is(count + 2));
+    assertThat(new2.getName(), is("new-2"));
+    assertThat(new2.getDepth(), is(3L));
+
+    DyadicNode new1 = treeRepo.findParent(new2).get();
+    assertThat(new1.getName(), is("new-1"));
+    assertThat(treeRepo.findChildren(tree.child2), contains(tree.lastSubChild, new1));
+    assertThat(treeRepo.findAncestors(new2), contains(tree.root, tree.child2, new1));
+    assertThat(treeRepo.findSubTree(tree.child1),
+        contains(tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2));
+
+    assertThat(treeRepo.ensurePath(treeId, Arrays.asList("root", "child-2", "new-1", "new-2")),
+        is(new2));
+    assertThat(treeRepo.count(), is(count + 2));
+  }
+
+  @Test
+  public void givenComplexTree3_whenEnsurePathWithWrongRoot_thenError() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    exceptionRule.expect(NoResultException.class);
+    treeRepo.ensurePath(tree.root.getTreeId(), Arrays.asList("child-1", "new-1"));
+  }
+
+  @Test
+  public void givenComplexTree3_whenReadThroughCache_thenSameAsRepo() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    Map<String, Integer> calls = new HashMap<>();
+    CachingTreeRepository<DyadicNode> cachedRepo =
+        new CachingTreeRepository<>(countingRepository(treeRepo, calls), 10, transactionManager);
+
+    // the first read of the tree misses, and loads its snapshot
+    DyadicNode cachedRoot = cachedRepo.findTreeRoot(tree.root.getTreeId());
+    assertThat(cachedRoot, is(tree.root));
+    assertThat(cachedRepo.getMissCount(), is(1L));
+    assertThat(cachedRepo.getHitCount(), is(0L));
+    assertThat(calls.keySet(), containsInAnyOrder("findTreeRoot", "findSubTree"));
+    calls.clear();
+
+    // a detached copy - not shared with the persistence context of the test
+    assertThat(cachedRoot == tree.root, is(false));
+    assertThat(entityManager.contains(cachedRoot), is(false));
+    tree.root.setName("renamed");
+    assertThat(cachedRepo.findTreeRoot(tree.root.getTreeId()).getName(), is("root"));
+    tree.root.setName("root");
+
+    // all the following reads of the tree hit, without calling the delegate
+    List<DyadicNode> nodes = treeRepo.findSubTree(tree.root);
+    long hits = cachedRepo.getHitCount();
+    for (DyadicNode node : nodes) {
+      assertThat(cachedRepo.findChildren(node), is(treeRepo.findChildren(node)));
+      assertThat(cachedRepo.findSubTree(node), is(treeRepo.findSubTree(node)));
+      assertThat(cachedRepo.findSubTree(node, 1), is(treeRepo.findSubTree(node, 1)));
+      assertThat(cachedRepo.findDescendantsAtDepth(node, 2),
+          is(treeRepo.findDescendantsAtDepth(node, 2)));
+      assertThat(cachedRepo.findLeaves(node), is(treeRepo.findLeaves(node)));
+      assertThat(cachedRepo.findSiblings(node), is(treeRepo.findSiblings(node)));
+      assertThat(cachedRepo.findAncestors(node), is(treeRepo.findAncestors(node)));
+      assertThat(cachedRepo.findParent(node), is(treeRepo.findParent(node)));
+    }
+    assertThat(cachedRepo.getHitCount() - hits, is(8L * nodes.size()));
+
+    List<String> path = Arrays.asList("root", "child-1", "subChild-2");
+    hits = cachedRepo.getHitCount();
+    assertThat(cachedRepo.findByPath(tree.root.getTreeId(), path).get(), is(tree.subChild2));
+    assertThat(cachedRepo.getHitCount() - hits, is(1L));
+
+    assertThat(cachedRepo.getMissCount(), is(1L));
+    assertThat(calls.isEmpty(), is(true));
+  }
+
+  @Test
+  public void givenCachedComplexTree3_whenAddChild_thenChangeVisible()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    ComplexTree3<DyadicNode> otherTree = new ComplexTree3<>(treeRepo, utils);
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    CachingTreeRepository<DyadicNode> cachedRepo =
+        new CachingTreeRepository<>(treeRepo, 1, transactionManager);
+
+    assertThat(cachedRepo.findChildren(otherTree.child2), contains(otherTree.lastSubChild));
+    assertThat(cachedRepo.findChildren(tree.child2), contains(tree.lastSubChild));
+    assertThat(cachedRepo.size(), is(1));
+    assertThat(cachedRepo.getEvictionCount(), is(1L));
+
+    DyadicNode newChild = new DyadicNode("new-child");
+    cachedRepo.addChild(tree.child2, newChild);
+
+    assertThat(cachedRepo.findChildren(tree.child2), contains(tree.lastSubChild, newChild));
+    assertThat(cachedRepo.size(), is(0));
+  }
+
+  @Test
+  public void givenTreeBeingWritten_whenBatchReadsThroughCache_thenMissesInOneDelegateCall()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    ComplexTree3<DyadicNode> otherTree = new ComplexTree3<>(treeRepo, utils);
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    Map<String, Integer> calls = new HashMap<>();
+    CachingTreeRepository<DyadicNode> cachedRepo =
+        new CachingTreeRepository<>(countingRepository(treeRepo, calls), 10, transactionManager);
+    // the tree is being written until the transaction of the test completes - its reads miss
+    cachedRepo.addChild(tree.child2, new DyadicNode("new-child"));
+    calls.clear();
+
+    List<DyadicNode> nodes = Arrays.asList(
+        tree.root, otherTree.root, tree.child1, otherTree.subChild1, tree.subSubChild1);
+    Map<DyadicNode, List<DyadicNode>> children = cachedRepo.findChildrenOfAll(nodes);
+    Map<DyadicNode, List<DyadicNode>> ancestors = cachedRepo.findAncestorsOfAll(nodes);
+
+    assertThat(children.keySet(), contains(nodes.toArray()));
+    assertThat(children, is(treeRepo.findChildrenOfAll(nodes)));
+    assertThat(ancestors.keySet(), contains(nodes.toArray()));
+    assertThat(ancestors, is(treeRepo.findAncestorsOfAll(nodes)));
+    // the snapshot of the other tree is loaded once; the 3 nodes of the tree go to one batched call
+    assertThat(calls.get("findTreeRoot"), is(1));
+    assertThat(calls.get("findSubTree"), is(1));
+    assertThat(calls.get("findChildrenOfAll"), is(1));
+    assertThat(calls.get("findAncestorsOfAll"), is(1));
+    assertThat(calls.containsKey("findChildren"), is(false));
+    assertThat(calls.containsKey("findAncestors"), is(false));
+  }
+
+  /**
+   * @return the repository, counting the calls of its methods by name
+   */
+  @SuppressWarnings("unchecked")
+  private static TreeRepository<DyadicNode> countingRepository(TreeRepository<DyadicNode> repository,
+      Map<String, Integer> calls) {
+    return (TreeRepository<DyadicNode>) Proxy.newProxyInstance(TreeRepository.class.getClassLoader(),
+        new Class<?>[]{TreeRepository.class}, (proxy, method, args) -> {
+          calls.merge(method.getName(), 1, Integer::sum);
+          try {
+            return method.invoke(repository, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+  }
+
+  @Test
+  public void givenComplexTree3_whenBuildTreeIndex_thenSameStructure() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    List<DyadicNode> nodes = treeRepo.findSubTree(tree.root);
+    TreeIndex index = TreeIndex.of(nodes);
+
+    assertThat(index.size(), is(7));
+    for (int i = 0; i < nodes.size(); i++) {
+      DyadicNode node = nodes.get(i);
+      assertThat(index.indexOf(node.getId()), is(i));
+      assertThat(index.getDepth(i), is(node.getDepth()));
+      int parent = index.parent(i);
+      assertThat(parent < 0 ? null : nodes.get(parent), is(treeRepo.findParent(node).orElse(null)));
+      assertThat(nodes.subList(i, index.subtreeEnd(i)), is(treeRepo.findSubTree(node)));
+    }
+    int child1 = index.indexOf(tree.child1.getId());
+    int subChild2 = index.indexOf(tree.subChild2.getId());
+    assertThat(index.firstChild(child1), is(index.indexOf(tree.subChild1.getId())));
+    assertThat(index.nextSibling(child1), is(index.indexOf(tree.child2.getId())));
+    assertThat(index.nextSibling(subChild2), is(-1));
+    assertThat(index.firstChild(subChild2), is(-1));
+    assertThat(index.contains(child1, subChild2), is(true));
+    assertThat(index.contains(subChild2, child1), is(false));
+    assertThat(index.indexOf(-1L), is(-1));
+  }
+
+  @Test
+  public void givenCachedQueries_whenAddChild_thenQueriesOfEntityEvicted()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    String region = TreeQueryCache.region(DyadicNode.class);
+    assertThat(region, is("works.hacker.model.dyadic.DyadicNode.queries"));
+
+    Statistics statistics =
+        entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    boolean statisticsEnabled = statistics.isStatisticsEnabled();
+    statistics.setStatisticsEnabled(true);
+    statistics.clear();
+    try {
+      assertThat(treeRepo.findChildren(tree.child2), contains(tree.lastSubChild));
+      assertThat(treeRepo.findChildren(tree.child2), contains(tree.lastSubChild));
+      // both reads are looked up in - and the results put into - the region of the entity
+      CacheRegionStatistics queries = statistics.getQueryRegionStatistics(region);
+      assertThat(queries.getHitCount() + queries.getMissCount(), is(2L));
+      assertThat(queries.getPutCount(), greaterThanOrEqualTo(1L));
+
+      DyadicNode newChild = new DyadicNode("new-child");
+      treeRepo.addChild(tree.child2, newChild);
+
+      // the cached result of the read is gone - the read after the mutation misses, and is put again
+      long hits = queries.getHitCount();
+      long misses = queries.getMissCount();
+      long puts = queries.getPutCount();
+      assertThat(treeRepo.findChildren(tree.child2), contains(tree.lastSubChild, newChild));
+      assertThat(queries.getHitCount() - hits, is(0L));
+      assertThat(queries.getMissCount() - misses, is(1L));
+      assertThat(queries.getPutCount() - puts, is(1L));
+
+      List<String> path = Arrays.asList("root", "child-2", "new-child");
+      assertThat(treeRepo.findByPath(tree.root.getTreeId(), path).get(), is(newChild));
+    } finally {
+      statistics.setStatisticsEnabled(statisticsEnabled);
+    }
+  }
+
+  @Test
+  public void givenAncestorChainCache_whenFindAncestorsAndRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    AncestorChainCache cache = new AncestorChainCache(2);
+    treeRepo.setAncestorChainCache(cache);
+    try {
+      assertThat(treeRepo.findAncestors(tree.subSubChild1), contains(tree.root, tree.child1, tree.subChild1));
+      assertThat(treeRepo.findAncestors(tree.subSubChild1), contains(tree.root, tree.child1, tree.subChild1));
+      assertThat(treeRepo.findParent(tree.subSubChild1).get(), is(tree.subChild1));
+      assertThat(treeRepo.findAncestors(tree.root), is(empty()));
+      assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+      assertThat(cache.getHitCount(), is(3L));
+      assertThat(cache.getMissCount(), is(2L));
+
+      treeRepo.findAncestors(tree.lastSubChild);
+      assertThat(cache.getEvictionCount(), is(1L));
+      assertThat(cache.size(), is(2));
+
+      treeRepo.removeChild(tree.child2, tree.lastSubChild);
+      assertThat(cache.size(), is(1));
+
+      cache.invalidateTree(tree.root.getTreeId());
+      assertThat(treeRepo.findAncestors(tree.root), is(empty()));
+      assertThat(cache.getMissCount(), is(4L));
+    } finally {
+      treeRepo.setAncestorChainCache(null);
+    }
+  }
+
+  @Test
+  public void givenAncestorChainCache_whenFindAncestorsOfClearedContext_thenSingleStatement() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    AncestorChainCache cache = new AncestorChainCache(10);
+    treeRepo.setAncestorChainCache(cache);
+    try {
+      treeRepo.findAncestors(tree.subSubChild1);
+      entityManager.flush();
+      entityManager.clear();
+
+      // the ids of the cached chain are resolved with one query - not with one find per ancestor
+      StatementCounter.reset();
+      assertThat(treeRepo.findAncestors(tree.subSubChild1), contains(tree.root, tree.child1, tree.subChild1));
+      StatementCounter.assertAtMost(1, "findAncestors of a cached chain");
+      assertThat(cache.getHitCount(), is(1L));
+    } finally {
+      treeRepo.setAncestorChainCache(null);
+    }
+  }
+
+  @Test
+  public void givenTreeVersionTracker_whenTreeChanged_thenPollerNotified()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    TreeVersionTracker tracker = new TreeVersionTracker();
+    treeRepo.setTreeVersionTracker(tracker);
+    try {
+      TreeVersionPoller poller = new TreeVersionPoller(entityManager, 5_000);
+      List<Long> changed = new ArrayList<>();
+      poller.addListener((entityName, treeId) -> {
+        assertThat(entityName, is("DyadicNode"));
+        changed.add(treeId);
+      });
+      assertThat(poller.poll(), is(0));
+
+      ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+      ComplexTree3<DyadicNode> otherTree = new ComplexTree3<>(treeRepo, utils);
+      assertThat(tracker.findVersion(entityManager, DyadicNode.class, tree.root.getTreeId()).get(), is(7L));
+
+      assertThat(poller.poll(), is(2));
+      assertThat(changed, containsInAnyOrder(tree.root.getTreeId(), otherTree.root.getTreeId()));
+      assertThat(poller.poll(), is(0));
+
+      treeRepo.addChild(tree.child2, new DyadicNode("new-child"));
+      changed.clear();
+      assertThat(poller.poll(), is(1));
+      assertThat(changed, contains(tree.root.getTreeId()));
+      assertThat(tracker.findVersion(entityManager, DyadicNode.class, tree.root.getTreeId()).get(), is(8L));
+    } finally {
+      treeRepo.setTreeVersionTracker(null);
+    }
+  }
+
+  @Test
+  public void givenTreeStartedWithoutTracker_whenTreeChanged_thenVersionInserted()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    TreeVersionTracker tracker = new TreeVersionTracker();
+    treeRepo.setTreeVersionTracker(tracker);
+    try {
+      Long treeId = tree.root.getTreeId();
+      assertThat(tracker.findVersion(entityManager, DyadicNode.class, treeId), is(Optional.empty()));
+      treeRepo.addChild(tree.child2, new DyadicNode("new-child"));
+      assertThat(tracker.findVersion(entityManager, DyadicNode.class, treeId).get(), is(1L));
+      treeRepo.addChild(tree.child2, new DyadicNode("other-child"));
+      assertThat(tracker.findVersion(entityManager, DyadicNode.class, treeId).get(), is(2L));
+
+      // a tree started with the tracker set has its row right away
+      Long startedTreeId = treeRepo.startTree(new DyadicNode("root"));
+      assertThat(tracker.findVersion(entityManager, DyadicNode.class, startedTreeId).get(), is(1L));
+    } finally {
+      treeRepo.setTreeVersionTracker(null);
+    }
+  }
+
+  @Test
+  public void givenTwoTrees_whenWarmUpLargest_thenReportOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    TreeWithOneChild<DyadicNode> smallTree = new TreeWithOneChild<>(treeRepo, utils);
+    assertThat(treeRepo.findLargestTreeIds(2), contains(tree.root.getTreeId(), smallTree.root.getTreeId()));
+    assertThat(treeRepo.findLargestTreeIds(1), contains(tree.root.getTreeId()));
+
+    // runs in the thread of the test, thus within the transaction of the test
+    TreeWarmUp<DyadicNode> warmUp = new TreeWarmUp<>(treeRepo, Runnable::run);
+    TreeWarmUp.Report report = warmUp.warmUpLargest(2).join();
+    assertThat(report.getTreeIds(), contains(tree.root.getTreeId(), smallTree.root.getTreeId()));
+    assertThat(report.getNodes(), is(9L));
+    assertThat(report.getFailures().isEmpty(), is(true));
+
+    report = warmUp.warmUp(Arrays.asList(tree.root.getTreeId(), -1L)).join();
+    assertThat(report.getNodes(), is(7L));
+    assertThat(report.getFailures().keySet(), contains(-1L));
+    assertThat(report.getFailures().get(-1L), instanceOf(NoResultException.class));
+  }
+
+  @Test
+  public void givenTreeIndexes_whenExplainRepositoryQueries_thenNoTableScan()
+      throws IllegalAccessException, SQLException {
+    assertThat(TreeSchema.createIndexes(TreeTableMapping.of(DyadicNode.class)), contains(
+        "CREATE INDEX idx_dyadicnode_tree_lft ON DyadicNode (treeId, lft)",
+        "CREATE INDEX idx_dyadicnode_tree_rgt ON DyadicNode (treeId, rgt)",
+        "CREATE INDEX idx_dyadicnode_tree_depth_lft ON DyadicNode (treeId, depth, lft)"));
+
+    DyadicQueries queries = DyadicQueries.of(DyadicNode.class);
+    List<String> jpql = new ArrayList<>();
+    for (Field field : DyadicQueries.class.getFields()) {
+      // reads all the trees, or reads by the primary key, by design
+      if (!field.getName().equals("findLargestTreeIds") && !field.getName().equals("findAllById")) {
+        jpql.add((String) field.get(queries));
+      }
+    }
+    jpql.add(queries.findByPath(3));
+
+    SessionFactoryImplementor sessionFactory =
+        entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+    try (Connection connection = dataSource.getConnection()) {
+      for (String query : jpql) {
+        String sql = sessionFactory.getQueryPlanCache()
+            .getHQLQueryPlan(query, false, Collections.emptyMap())
+            .getSqlStrings()[0];
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+          for (int i = 1; i <= explain.getParameterMetaData().getParameterCount(); i++) {
+            explain.setLong(i, 1L);
+          }
+          try (ResultSet plan = explain.executeQuery()) {
+            assertThat(plan.next(), is(true));
+            String actual = plan.getString(1);
+            LOG.debug("{}\n{}", query, actual);
+            assertThat(query, actual, not(containsString("tableScan")));
+            assertThat(query, actual, containsString("IDX_DYADICNODE_TREE_"));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void givenTreeIdAllocators_whenStartTree_thenIdsAllocatedInOrder()
+      throws SQLException, TreeRepository.NodeAlreadyAttachedToTree {
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("CREATE SEQUENCE IF NOT EXISTS tree_id_seq START WITH 1");
+    }
+    SequenceTreeIdAllocator sequence = new SequenceTreeIdAllocator("tree_id_seq");
+    try {
+      treeRepo.setTreeIdAllocator(sequence);
+      Long first = treeRepo.startTree(new DyadicNode("first"));
+      Long second = treeRepo.startTree(new DyadicNode("second"));
+      assertThat(second, is(first + 1));
+      assertThat(treeRepo.findTreeRoot(second).getName(), is("second"));
+
+      treeRepo.setTreeIdAllocator(new HiLoTreeIdAllocator(sequence, 10));
+      Long third = treeRepo.startTree(new DyadicNode("third"));
+      Long fourth = treeRepo.startTree(new DyadicNode("fourth"));
+      assertThat(third, is((second + 1) * 10));
+      assertThat(fourth, is(third + 1));
+      assertThat(treeRepo.findTreeRoot(fourth).getName(), is("fourth"));
+    } finally {
+      treeRepo.setTreeIdAllocator(null);
+    }
+  }
+
+  @Test
+  public void givenNames_whenCreateNodes_thenNodesNotAttachedToTree()
+      throws NoSuchMethodException, InvocationTargetException {
+    List<DyadicNode> actual = treeRepo.createNodes(Stream.of("node-1", "node-2", "node-3"));
+    assertThat(actual.stream().map(DyadicNode::getName).collect(Collectors.toList()),
+        contains("node-1", "node-2", "node-3"));
+    assertThat(actual.stream().noneMatch(DyadicNode::hasTreeId), is(true));
+    assertThat(NodeFactory.of(DyadicNode.class).create("node-4").getName(), is("node-4"));
+  }
+
+  @Test
+  public void givenComplexTree3_whenSortShuffledByPreorder_thenSameAsSubTree() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    List<DyadicNode> expected = treeRepo.findSubTree(tree.root);
+    List<DyadicNode> actual = new ArrayList<>(expected);
+    Collections.shuffle(actual, new Random(42));
+    actual.sort(DyadicEntity.PREORDER);
+    assertThat(actual.stream().map(DyadicNode::getName).collect(Collectors.toList()),
+        contains(expected.stream().map(DyadicNode::getName).toArray()));
+
+    // the lft of both is 1.0 as a double
+    assertThat(DyadicEntity.compareFractions(
+        Long.MAX_VALUE - 1, Long.MAX_VALUE, Long.MAX_VALUE - 2, Long.MAX_VALUE - 1), greaterThan(0));
+    assertThat(DyadicEntity.compareFractions(1, 2, 2, 4), is(0));
+  }
+
+  @Test
+  public void givenDetachedNode_whenReloaded_thenEqualById() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    entityManager.flush();
+    entityManager.detach(tree.subChild1);
+    DyadicNode reloaded = treeRepo.findById(tree.subChild1.getId()).get();
+    assertThat(reloaded == tree.subChild1, is(false));
+    assertThat(reloaded, is(tree.subChild1));
+    assertThat(reloaded.hashCode(), is(tree.subChild1.hashCode()));
+    assertThat(reloaded, not(tree.subChild2));
+
+    DyadicNode notPersisted = new DyadicNode("subChild-1");
+    assertThat(notPersisted, is(notPersisted));
+    assertThat(notPersisted, not(new DyadicNode("subChild-1")));
+  }
+
+  @Test
+  public void givenComplexTree3_whenAsyncLookups_thenSameAsSync() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    // runs in the thread of the test, thus within the transaction of the test
+    AsyncTreeRepository<DyadicNode> async = new AsyncTreeRepository<>(treeRepo, Runnable::run);
+    CompletableFuture<List<DyadicNode>> ancestors = async.findAncestors(tree.subSubChild1);
+    CompletableFuture<List<DyadicNode>> children = async.findChildren(tree.child1);
+    CompletableFuture<Optional<DyadicNode>> parent = async.findParent(tree.subChild2);
+    CompletableFuture.allOf(ancestors, children, parent).join();
+    assertThat(ancestors.join(), contains(treeRepo.findAncestors(tree.subSubChild1).toArray()));
+    assertThat(children.join(), contains(treeRepo.findChildren(tree.child1).toArray()));
+    assertThat(parent.join(), is(treeRepo.findParent(tree.subChild2)));
+
+    CompletableFuture<Void> failed = async.addChild(new DyadicNode("parent"), new DyadicNode("child"));
+    assertThat(failed.isCompletedExceptionally(), is(true));
+    try {
+      failed.join();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), instanceOf(TreeRepository.NodeNotInTree.class));
+    }
+
+    assertThat(async.getCompletedCount(), is(4L));
+    assertThat(async.getFailedCount(), is(1L));
+    assertThat(async.getQueuedCount(), is(0));
+    assertThat(async.getActiveCount(), is(0));
+    assertThat(async.getRejectedCount(), is(0L));
+  }
+
+  @Test
+  public void givenTreeMetrics_whenOperations_thenRecordedByOperationAndTree()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeAlreadyAttachedToTree,
+      TreeRepository.NodeNotChildOfParent {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    MeterRegistry registry = new SimpleMeterRegistry();
+    try {
+      treeRepo.setTreeMetrics(new MicrometerTreeMetrics(registry, 4));
+      treeRepo.findChildren(tree.root);
+      treeRepo.addChild(tree.subChild2, new DyadicNode("added"));
+      treeRepo.removeChild(tree.root, tree.child2);
+      treeRepo.findAncestorsOfAll(Collections.singletonList(tree.subSubChild1));
+    } finally {
+      treeRepo.setTreeMetrics(null);
+    }
+    String bucket = Long.toString(Math.floorMod(tree.root.getTreeId(), 4L));
+
+    assertThat(registry.get(MicrometerTreeMetrics.OPERATION)
+        .tags("operation", "findChildren", "entity", "DyadicNode", "tree", bucket).timer().count(), is(1L));
+    assertThat(registry.get(MicrometerTreeMetrics.RESULTS)
+        .tags("operation", "findChildren").summary().totalAmount(), is(2.0));
+    assertThat(registry.get(MicrometerTreeMetrics.OPERATION)
+        .tags("operation", "addChild", "tree", bucket).timer().count(), is(1L));
+    assertThat(registry.get(MicrometerTreeMetrics.OPERATION)
+        .tags("operation", "removeChild", "tree", bucket).timer().count(), is(1L));
+    assertThat(registry.get(MicrometerTreeMetrics.RESULTS)
+        .tags("operation", "findAncestorsOfAll", "tree", "none").summary().totalAmount(), is(3.0));
+
+    // no renumbering in the dyadic encoding
+    assertThat(registry.get(MicrometerTreeMetrics.SHIFTED)
+        .tags("operation", "addChild").counter().count(), is(0.0));
+    assertThat(registry.get(MicrometerTreeMetrics.SHIFTED)
+        .tags("operation", "removeChild").counter().count(), is(0.0));
+    assertThat(registry.get(MicrometerTreeMetrics.DELETED)
+        .tags("operation", "removeChild").counter().count(), is(2.0));
+
+    // no metrics once reset
+    treeRepo.findChildren(tree.root);
+    assertThat(registry.get(MicrometerTreeMetrics.OPERATION)
+        .tags("operation", "findChildren").timer().count(), is(1L));
+  }
+
+  @Test
+  public void givenTreesOfSizes_whenOperations_thenStatementsBounded()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+      TreeRepository.NodeNotChildOfParent {
+    for (int size : new int[]{10, 100}) {
+      // fan-out of 3 - node i is the child of node (i - 1) / 3
+      List<DyadicNode> nodes = new ArrayList<>();
+      nodes.add(new DyadicNode("node-0"));
+      treeRepo.startTree(nodes.get(0));
+      for (int i = 1; i < size; i++) {
+        DyadicNode node = new DyadicNode("node-" + i);
+        treeRepo.addChild(nodes.get((i - 1) / 3), node);
+        nodes.add(node);
+      }
+      entityManager.flush();
+      DyadicNode root = nodes.get(0);
+      DyadicNode last = nodes.get(size - 1);
+      int leftMostLeaf = 0;
+      while (3 * leftMostLeaf + 1 < size) {
+        leftMostLeaf = 3 * leftMostLeaf + 1;
+      }
+      String ofTree = String.format(" of a tree of %d nodes", size);
+
+      StatementCounter.reset();
+      treeRepo.findTreeRoot(root.getTreeId());
+      StatementCounter.assertAtMost(1, "findTreeRoot" + ofTree);
+      StatementCounter.reset();
+      treeRepo.findChildren(root);
+      StatementCounter.assertAtMost(1, "findChildren" + ofTree);
+      StatementCounter.reset();
+      treeRepo.findSubTree(root);
+      StatementCounter.assertAtMost(1, "findSubTree" + ofTree);
+      StatementCounter.reset();
+      treeRepo.findAncestors(last);
+      StatementCounter.assertAtMost(1, "findAncestors" + ofTree);
+      StatementCounter.reset();
+      treeRepo.findParent(last);
+      StatementCounter.assertAtMost(1, "findParent" + ofTree);
+      StatementCounter.reset();
+      treeRepo.findChildrenOfAll(nodes);
+      StatementCounter.assertAtMost(1, "findChildrenOfAll" + ofTree);
+      StatementCounter.reset();
+      treeRepo.findAncestorsOfAll(nodes);
+      StatementCounter.assertAtMost(1, "findAncestorsOfAll" + ofTree);
+
+      // the youngest child and the insert - no renumbering
+      DyadicNode added = new DyadicNode("added");
+      StatementCounter.reset();
+      treeRepo.addChild(nodes.get(leftMostLeaf), added);
+      entityManager.flush();
+      StatementCounter.assertAtMost(2, "addChild" + ofTree);
+      StatementCounter.assertRowsWritten(1, "addChild" + ofTree);
+      nodes.add(added);
+
+      // the sub-tree query - and the deleted rows, in batches
+      DyadicNode child = nodes.get(1);
+      long removed = nodes.stream()
+          .filter(n -> child.getLft() <= n.getLft() && n.getRgt() <= child.getRgt()).count();
+      StatementCounter.reset();
+      treeRepo.removeChild(root, child);
+      entityManager.flush();
+      StatementCounter.assertAtMost(1 + batches(removed), "removeChild" + ofTree);
+      StatementCounter.assertRowsWritten(removed, "removeChild" + ofTree);
+    }
+  }
+
+  /**
+   * @return the JDBC batches of hibernate.jdbc.batch_size (50) needed to write the rows
+   */
+  private static int batches(long rows) {
+    return (int) ((rows + 49) / 50);
+  }
+
+  @Test
+  public void givenParentNotAttachedToTree_whenRemoveChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    DyadicNode parent = new DyadicNode("parent");
+    DyadicNode child = new DyadicNode("child");
+
+    exceptionRule.expect(MpttRepository.NodeNotInTree.class);
+    exceptionRule.expectMessage(String.format("Parent node not attached to any tree: %s", parent));
+    treeRepo.removeChild(parent, child);
+  }
+
+  @Test
+  public void givenParentAndChildInDifferentTrees_whenRemoveChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    TreeWithOneChild<DyadicNode> tree1 = new TreeWithOneChild<>(treeRepo, utils);
+    TreeWithOneChild<DyadicNode> tree2 = new TreeWithOneChild<>(treeRepo, utils);
+
+    exceptionRule.expect(MpttRepository.NodeNotInTree.class);
+    exceptionRule
+        .expectMessage(
+            String.format("Nodes not in same tree - parent: %s; child %s", tree1.root, tree2.child1));
+    treeRepo.removeChild(tree1.root, tree2.child1);
+  }
+
+  @Test
+  public void givenParentAndChild_whenRemoveChildReverseParentAndChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    TreeWithOneChild<DyadicNode> tree = new TreeWithOneChild<>(treeRepo, utils);
+
+    exceptionRule.expect(MpttRepository.NodeNotChildOfParent.class);
+    treeRepo.removeChild(tree.child1, tree.root);
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    TreeWithOneChild<DyadicNode> tree = new TreeWithOneChild<>(treeRepo, utils);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    List<DyadicNode> removed = treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after\n%s", utils.printTree(tree.root)));
+
+    DyadicNode actual = treeRepo.findByName(tree.root.getName());
+    assertThat(actual.getLft(), is(actual.getStartLft()));
+    assertThat(actual.getRgt(), is(actual.getStartRgt()));
+
+    assertThat(treeRepo.findChildren(actual), is(emptyIterable()));
+
+    assertThat(treeRepo.count(), is(1L));
+
+    assertThat(removed.size(), is(1));
+    assertThat(removed, contains(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    TreeWithChildAndSubChild<DyadicNode> tree = new TreeWithChildAndSubChild<>(treeRepo, utils);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    List<DyadicNode> removed = treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    DyadicNode actual = treeRepo.findByName(tree.root.getName());
+    assertThat(actual.getLft(), is(actual.getStartLft()));
+    assertThat(actual.getRgt(), is(actual.getStartRgt()));
+
+    assertThat(treeRepo.findChildren(actual), is(emptyIterable()));
+
+    assertThat(treeRepo.count(), is(1L));
+
+    assertThat(removed.size(), is(2));
+    assertThat(removed, contains(tree.child1, tree.subChild1));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    TreeWithTwoChildren<DyadicNode> tree = new TreeWithTwoChildren<>(treeRepo, utils);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    List<DyadicNode> removed = treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    List<DyadicNode> actualChildren = treeRepo.findChildren(tree.root);
+    assertThat(actualChildren.size(), is(1));
+    assertThat(actualChildren, contains(tree.child2));
+
+    assertThat(treeRepo.count(), is(2L));
+
+    assertThat(removed.size(), is(1));
+    assertThat(removed, contains(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenRemoveChild_whenAddChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent,
+      TreeRepository.NodeAlreadyAttachedToTree {
+    TreeWithTwoChildren<DyadicNode> tree = new TreeWithTwoChildren<>(treeRepo, utils);
+
+    LOG.debug(String.format("before remove:\n%s", utils.printTree(tree.root)));
+    treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after remove:\n%s", utils.printTree(tree.root)));
+
+    DyadicNode newChild = new DyadicNode("newChild");
+    treeRepo.addChild(tree.root, newChild);
+
+    // @formatter:off
+    String expected = String.format(
+        ".\n" +
+        "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+        "    ├── child-2 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]\n" +
+        "    └── newChild (id: %d) [treeId: %d | lft: 3/4 | rgt: 7/8]",
+        tree.root.getId(), tree.root.getTreeId(),
+        tree.child2.getId(), tree.child2.getTreeId(),
+        newChild.getId(),  newChild.getTreeId());
+    // @formatter:on
+    String actual = utils.printTree(tree.root);
+    LOG.debug(String.format("after add:\n%s", actual));
+
+    assertThat(actual, is(expected));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenRemoveSubChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    TreeWithChildAndSubChild<DyadicNode> tree = new TreeWithChildAndSubChild<>(treeRepo, utils);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    List<DyadicNode> removed = treeRepo.removeChild(tree.root, tree.subChild1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    List<DyadicNode> actualChildren = treeRepo.findChildren(tree.root);
+    assertThat(actualChildren.size(), is(1));
+    assertThat(actualChildren, contains(tree.child1));
+
+    assertThat(treeRepo.count(), is(2L));
+
+    assertThat(removed.size(), is(1));
+    assertThat(removed, contains(tree.subChild1));
+
+    assertThat(treeRepo.findChildren(tree.child1), is(empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveChild1_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpectedAfterChild1Removal()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveChild2_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    treeRepo.removeChild(tree.root, tree.child2);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    String actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpectedAfterChild2Removal()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindTreeRoot_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+
+    LOG.debug(String.format("tree to search for root:\n%s", utils.printTree(tree.root)));
+
+    DyadicNode actual = treeRepo.findTreeRoot(tree.treeId);
+    assertThat(actual, is(tree.root));
+  }
+
+  @Test
+  public void givenRoot_whenFindAncestorsOfRoot_thenEmptyList() {
+    TreeWithNoChildren<DyadicNode> tree = new TreeWithNoChildren<>(treeRepo, utils);
+    List<DyadicNode> actual = treeRepo.findAncestors(tree.root);
+    assertThat(actual, is(empty()));
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenFindAncestorsOfChild_thenListOfRoot() {
+    TreeWithOneChild<DyadicNode> tree = new TreeWithOneChild<>(treeRepo, utils);
+    List<DyadicNode> actual = treeRepo.findAncestors(tree.child1);
+    assertThat(actual.size(), is(1));
+    assertThat(actual, contains(tree.root));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenFindAncestors_thenOK() {
+    TreeWithChildAndSubChild<DyadicNode> tree = new TreeWithChildAndSubChild<>(treeRepo, utils);
+
+    List<DyadicNode> ancestorsOfRoot = treeRepo.findAncestors(tree.root);
+    assertThat(ancestorsOfRoot, is(empty()));
+
+    List<DyadicNode> ancestorsOfChild = treeRepo.findAncestors(tree.child1);
+    assertThat(ancestorsOfChild.size(), is(1));
+    assertThat(ancestorsOfChild, contains(tree.root));
+
+    List<DyadicNode> ancestorsOfSubChild = treeRepo.findAncestors(tree.subChild1);
+    assertThat(ancestorsOfSubChild.size(), is(2));
+    assertThat(ancestorsOfSubChild, containsInRelativeOrder(tree.root, tree.child1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindAncestors_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findAncestors(tree.subChild1), containsInRelativeOrder(tree.root, tree.child1));
+    assertThat(treeRepo.findAncestors(tree.subChild2), containsInRelativeOrder(tree.root, tree.child1));
+    assertThat(treeRepo.findAncestors(tree.subSubChild1),
+        containsInRelativeOrder(tree.root, tree.child1, tree.subChild1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindAncestorsOfAll_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    TreeWithOneChild<DyadicNode> otherTree = new TreeWithOneChild<>(treeRepo, utils);
+
+    Map<DyadicNode, List<DyadicNode>> actual = treeRepo.findAncestorsOfAll(
+        Arrays.asList(tree.subSubChild1, tree.subChild2, tree.root, otherTree.child1));
+
+    assertThat(actual.keySet(),
+        contains(tree.subSubChild1, tree.subChild2, tree.root, otherTree.child1));
+    assertThat(actual.get(tree.subSubChild1), contains(tree.root, tree.child1, tree.subChild1));
+    assertThat(actual.get(tree.subChild2), contains(tree.root, tree.child1));
+    assertThat(actual.get(tree.root), is(empty()));
+    assertThat(actual.get(otherTree.child1), contains(otherTree.root));
+
+    assertThat(actual.get(tree.subSubChild1).get(1),
+        is(sameInstance(actual.get(tree.subChild2).get(1))));
+  }
+
+  @Test
+  public void givenComplexTree3_whenReadWithJdbcTreeReader_thenSameAsJpa() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    entityManager.flush();
+    JdbcTreeReader reader = new DyadicJdbcTreeReader(dataSource, TreeTableMapping.of(DyadicNode.class));
+
+    assertThat(reader.findTreeRoot(tree.treeId).get(), is(TreeRow.of(tree.root)));
+    for (DyadicNode node : treeRepo.findSubTree(tree.root)) {
+      TreeRow row = TreeRow.of(node);
+      assertThat(reader.findChildren(row), is(toRows(treeRepo.findChildren(node))));
+      assertThat(reader.findSubTree(row), is(toRows(treeRepo.findSubTree(node))));
+      assertThat(reader.findAncestors(row), is(toRows(treeRepo.findAncestors(node))));
+      assertThat(reader.findParent(row), is(treeRepo.findParent(node).map(TreeRow::of)));
+    }
+  }
+
+  private static List<TreeRow> toRows(List<DyadicNode> nodes) {
+    return nodes.stream().map(TreeRow::of).collect(Collectors.toList());
+  }
+
+  @Test
+  public void givenRoot_whenFindParentOfRoot_thenNull() throws TreeRepository.NodeAlreadyAttachedToTree {
+    DyadicNode root = new DyadicNode("root");
+    treeRepo.startTree(root);
+    assertThat(treeRepo.findParent(root), is(Optional.empty()));
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenFindParentOfChild_thenRoot() {
+    TreeWithOneChild<DyadicNode> tree = new TreeWithOneChild<>(treeRepo, utils);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenFindParent_thenOK() {
+    TreeWithChildAndSubChild<DyadicNode> tree = new TreeWithChildAndSubChild<>(treeRepo, utils);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.subChild1).get(), is(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenFindParent_thenOK() {
+    TreeWithTwoChildren<DyadicNode> tree = new TreeWithTwoChildren<>(treeRepo, utils);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.child2).get(), is(tree.root));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindParent_thenOK() {
+    ComplexTree3<DyadicNode> tree = new ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.child2).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.subChild1).get(), is(tree.child1));
+    assertThat(treeRepo.findParent(tree.subChild2).get(), is(tree.child1));
+    assertThat(treeRepo.findParent(tree.subSubChild1).get(), is(tree.subChild1));
+    assertThat(treeRepo.findParent(tree.lastSubChild).get(), is(tree.child2));
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class TreeWithNoChildren<T extends TreeEntity> {
+    public T root;
+
+    protected Long treeId;
+
+    protected final TreeRepository<T> repo;
+    protected final TreeUtils<T> utils;
+
+    public TreeWithNoChildren(TreeRepository<T> repo, TreeUtils<T> utils) {
+      this.repo = repo;
+      this.utils = utils;
+
+      try {
+        setupTree();
+      } catch (Exception e) {
+        // do nothing
+      }
+    }
+
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, InvocationTargetException,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        TreeRepository.NodeNotInTree {
+      root = repo.createNode("root");
+
+      this.treeId = repo.startTree(root);
+    }
+
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]",
+          root.getId(), root.getTreeId());
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class TreeWithOneChild<T extends TreeEntity> extends TreeWithNoChildren<T> {
+    public T child1;
+
+    public TreeWithOneChild(TreeRepository<T> repo, TreeUtils<T> utils) {
+      super(repo, utils);
+    }
+
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        InvocationTargetException, NoSuchMethodException, InstantiationException,
+        IllegalAccessException {
+      super.setupTree();
+      child1 = repo.createNode("child-1");
+      repo.addChild(root, child1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n"+
+          "    └── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]",
+          root.getId(), root.getTreeId(),
+          child1.getId(), child1.getTreeId());
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class TreeWithTwoChildren<T extends TreeEntity> extends TreeWithOneChild<T> {
+    public T child2;
+
+    public TreeWithTwoChildren(TreeRepository<T> repo, TreeUtils<T> utils) {
+      super(repo, utils);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        InvocationTargetException {
+      super.setupTree();
+      child2 = repo.createNode("child-2");
+      repo.addChild(root, child2);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]",
+          root.getId(), root.getTreeId(),
+          child1.getId(), child1.getTreeId(),
+          child2.getId(), child2.getTreeId());
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class TreeWithChildAndSubChild<T extends TreeEntity> extends TreeWithOneChild<T> {
+    public T subChild1;
+
+    public TreeWithChildAndSubChild(TreeRepository<T> repo, TreeUtils<T> utils) {
+      super(repo, utils);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        InvocationTargetException {
+      super.setupTree();
+      subChild1 = repo.createNode("subChild-1");
+      repo.addChild(child1, subChild1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+          "    └── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+          "        └── subChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/4]",
+          root.getId(), root.getTreeId(),
+          child1.getId(), child1.getTreeId(),
+          subChild1.getId(), subChild1.getTreeId());
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class ComplexTree1<T extends TreeEntity> extends TreeWithTwoChildren<T> {
+    public T subChild1;
+
+    public ComplexTree1(TreeRepository<T> repo, TreeUtils<T> utils) {
+      super(repo, utils);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        InvocationTargetException, NoSuchMethodException, InstantiationException,
+        IllegalAccessException {
+      super.setupTree();
+      subChild1 = repo.createNode("subChild-1");
+      repo.addChild(child1, subChild1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+          "    │   └── subChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/4]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]",
+          root.getId(), root.getTreeId(),
+          child1.getId(), child1.getTreeId(),
+          subChild1.getId(), subChild1.getTreeId(),
+          child2.getId(), child2.getTreeId());
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class ComplexTree2<T extends TreeEntity> extends ComplexTree1<T> {
+    public T subSubChild1;
+
+    public ComplexTree2(TreeRepository<T> repo, TreeUtils<T> utils) {
+      super(repo, utils);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        InvocationTargetException {
+      super.setupTree();
+      subSubChild1 = repo.createNode("subSubChild-1");
+      repo.addChild(subChild1, subSubChild1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+          "    │   └── subChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/4]\n" +
+          "    │       └── subSubChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/8]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]",
+          root.getId(), root.getTreeId(),
+          child1.getId(), child1.getTreeId(),
+          subChild1.getId(), subChild1.getTreeId(),
+          subSubChild1.getId(), subSubChild1.getTreeId(),
+          child2.getId(), child2.getTreeId());
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  static class ComplexTree3<T extends TreeEntity> extends ComplexTree2<T> {
+    public T subChild2;
+    public T lastSubChild;
+
+    public ComplexTree3(TreeRepository<T> repo, TreeUtils<T> utils) {
+      super(repo, utils);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        InvocationTargetException, NoSuchMethodException, InstantiationException,
+        IllegalAccessException {
+      super.setupTree();
+      subChild2 = repo.createNode("subChild-2");
+      repo.addChild(child1, subChild2);
+      lastSubChild = repo.createNode("lastSubChild");
+      repo.addChild(child2, lastSubChild);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+          "    │   ├── subChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/4]\n" +
+          "    │   │   └── subSubChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/8]\n" +
+          "    │   └── subChild-2 (id: %d) [treeId: %d | lft: 1/4 | rgt: 3/8]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]\n" +
+          "        └── lastSubChild (id: %d) [treeId: %d | lft: 1/2 | rgt: 5/8]",
+          root.getId(), root.getTreeId(),
+          child1.getId(), child1.getTreeId(),
+          subChild1.getId(), subChild1.getTreeId(),
+          subSubChild1.getId(), subSubChild1.getTreeId(),
+          subChild2.getId(), subChild2.getTreeId(),
+          child2.getId(), child2.getTreeId(),
+          lastSubChild.getId(), lastSubChild.getTreeId());
+      // @formatter:on
+    }
+
+    public String getExpectedPartial() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+              "└── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+              "    ├── subChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/4]\n" +
+              "    │   └── subSubChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/8]\n" +
+              "    └── subChild-2 (id: %d) [treeId: %d | lft: 1/4 | rgt: 3/8]",
+          child1.getId(), child1.getTreeId(),
+          subChild1.getId(), subChild1.getTreeId(),
+          subSubChild1.getId(),  subSubChild1.getTreeId(),
+          subChild2.getId(), subChild2.getTreeId());
+      // @formatter:on
+    }
+
+    public String getExpectedAfterChild1Removal() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+              "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+              "    └── child-2 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]\n" +
+              "        └── lastSubChild (id: %d) [treeId: %d | lft: 1/2 | rgt: 5/8]",
+          root.getId(), root.getTreeId(),
+          child2.getId(), child2.getTreeId(),
+          lastSubChild.getId(), lastSubChild.getTreeId());
+      // @formatter:on
+    }
+
+    public String getExpectedAfterChild2Removal() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+              "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+              "    └── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+              "        ├── subChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/4]\n" +
+              "        │   └── subSubChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/8]\n" +
+              "        └── subChild-2 (id: %d) [treeId: %d | lft: 1/4 | rgt: 3/8]",
+          root.getId(), root.getTreeId(),
+          child1.getId(), child1.getTreeId(),
+          subChild1.getId(), subChild1.getTreeId(),
+          subSubChild1.getId(), subSubChild1.getTreeId(),
+          subChild2.getId(), subChild2.getTreeId());
+      // @formatter:on
+    }
+  }
+}
@@ -1,64 +0,0 @@
-package works.hacker.config;
-
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.PropertySource;
-import org.springframework.core.env.Environment;
-import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
-import org.springframework.orm.jpa.JpaTransactionManager;
-import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
-import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
-import org.springframework.transaction.annotation.EnableTransactionManagement;
-
-import javax.persistence.EntityManagerFactory;
-import javax.sql.DataSource;
-import java.util.Properties;
-
-@Configuration
-@EnableJpaRepositories(basePackages = { "works.hacker.repo.classic", "works.hacker.repo.dyadic"})
-@PropertySource("application.properties")
-@EnableTransactionManagement
-public class TreesJpaConfig {
-  @Autowired
-  private Environment env;
-
-  @Bean
-  public DataSource dataSource() {
-    final DriverManagerDataSource dataSource = new DriverManagerDataSource();
-    dataSource.setDriverClassName(env.getProperty("spring.datasource.driverClassName"));
-    dataSource.setUrl(env.getProperty("spring.datasource.url"));
-    dataSource.setUsername(env.getProperty("spring.datasource.username"));
-    dataSource.setPassword(env.getProperty("spring.datasource.password"));
-    return dataSource;
-  }
-
-  @Bean
-  public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
-    final LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-    em.setDataSource(dataSource());
-    em.setPackagesToScan(new String[]{"works.hacker.model.classic", "works.hacker.model.dyadic"});
-    em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
-    em.setJpaProperties(additionalProperties());
-    return em;
-  }
-
-  @Bean
-  JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
-    JpaTransactionManager transactionManager = new JpaTransactionManager();
-    transactionManager.setEntityManagerFactory(entityManagerFactory);
-    return transactionManager;
-  }
-
-  final Properties additionalProperties() {
-    final Properties hibernateProperties = new Properties();
-    // @formatter:off
-    hibernateProperties.setProperty("hibernate.hbm2ddl.auto", env.getProperty("spring.jpa.generate-ddl"));
-    hibernateProperties.setProperty("hibernate.dialect", env.getProperty("spring.jpa.database-platform"));
-    hibernateProperties.setProperty("hibernate.show_sql", env.getProperty("spring.jpa.show-sql"));
-    hibernateProperties.setProperty("hibernate.format_sql", env.getProperty("spring.jpa.properties.hibernate.format_sql"));
-    // @formatter:on
-    return hibernateProperties;
-  }
-}